@@ -24,6 +24,7 @@ import org.sonar.api.Properties;
 import org.sonar.api.Property;
 import org.sonar.api.PropertyType;
 import org.sonar.plugins.groovy.cobertura.CoberturaSensor;
+import org.sonar.plugins.groovy.codenarc.CodeNarcRuleSetCache;
 import org.sonar.plugins.groovy.codenarc.CodeNarcRulesDefinition;
 import org.sonar.plugins.groovy.codenarc.CodeNarcSensor;
 import org.sonar.plugins.groovy.codenarc.SonarWayProfile;
@@ -32,6 +33,8 @@ import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
 import org.sonar.plugins.groovy.jacoco.JaCoCoExtensions;
 import org.sonar.plugins.groovy.surefire.GroovySurefireParser;
 import org.sonar.plugins.groovy.surefire.GroovySurefireSensor;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
+import org.sonar.plugins.groovy.utils.TimeLimitedWorker;
 
 @Properties({
   @Property(
@@ -42,6 +45,27 @@ import org.sonar.plugins.groovy.surefire.GroovySurefireSensor;
     module = true,
     global = true,
     deprecatedKey = GroovyPlugin.CODENARC_REPORT_PATH),
+  @Property(
+    key = GroovyPlugin.CODENARC_CHANGED_FILES_ONLY,
+    defaultValue = "false",
+    name = "Run CodeNarc on changed files only",
+    description = "If set to \"true\", CodeNarc only analyses the files which are added or changed compared to the last analysis. " +
+      "Only applies to preview and issues modes: all the files are analysed in publish mode, where skipping unchanged files would close their issues. " +
+      "CodeNarc rules look at one file at a time, so issues on changed files are not affected.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = GroovyPlugin.CODENARC_PROFILING,
+    defaultValue = "false",
+    name = "Profile CodeNarc rules",
+    description = "If set to \"true\", the time spent by each CodeNarc rule and on each file is measured. " +
+      "The results are written to \"codenarc/rules-profiling.txt\" in the working directory, and the slowest rules are logged.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.BOOLEAN),
   @Property(
     key = GroovyPlugin.COBERTURA_REPORT_PATH,
     name = "Cobertura Report",
@@ -67,25 +91,110 @@ import org.sonar.plugins.groovy.surefire.GroovySurefireSensor;
     project = true,
     module = true,
     global = true),
+  @Property(
+    key = GroovyPlugin.CPD_NORMALIZATIONS,
+    name = "Duplication detection normalizations",
+    description = "Comma-separated list of normalizations applied to the tokens used for duplication detection: " +
+      "\"numbers\" makes all numeric literals equal, \"comments\" ignores comments, \"identifiers\" makes all identifiers equal. " +
+      "Normalized tokens make the duplication index smaller, but more blocks are reported as duplicated. Leave empty to keep tokens as they are.",
+    project = true,
+    module = true,
+    global = true),
   @Property(
     key = GroovyPlugin.SONAR_GROOVY_BINARIES,
     name = "Binary directories",
     description = "Comma-separated list of optional directories that contain the compiled groovy sources.",
     project = true,
     module = true,
-    global = true)
+    global = true),
+  @Property(
+    key = GroovyPlugin.ANALYSIS_MAX_FILE_SIZE,
+    name = "Maximum size of analysed files",
+    description = "Groovy files larger than this number of kilobytes are not analysed. Leave empty for no limit.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = GroovyPlugin.ANALYSIS_MAX_FILE_LINES,
+    name = "Maximum number of lines of analysed files",
+    description = "Groovy files with more lines than this are not analysed. Leave empty for no limit.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = GroovyPlugin.ANALYSIS_GENERATED_FILE_MARKERS,
+    name = "Generated file markers",
+    description = "Comma-separated list of strings identifying generated files, such as \"@Generated\" or \"DO NOT EDIT\". " +
+      "Groovy files containing one of them in their first 2048 characters are not analysed.",
+    project = true,
+    module = true,
+    global = true),
+  @Property(
+    key = GroovyPlugin.FILE_ANALYSIS_TIMEOUT,
+    name = "Analysis time limit per file",
+    description = "Number of seconds after which the CodeNarc analysis of a file is abandoned, the file being reported as skipped. " +
+      "The analysis can not be interrupted: the CPU used by a timed-out file is not reclaimed until its analysis completes or the scanner exits. " +
+      "While " + TimeLimitedWorker.MAX_ABANDONED_THREADS + " such analyses are still running, the next files are skipped without being analysed. " +
+      "Leave empty for no limit.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = GroovyPlugin.GMETRICS_ANALYSIS_TIMEOUT,
+    name = "GMetrics analysis time limit per file",
+    description = "Number of seconds after which the GMetrics analysis of a file is abandoned, the file being reported as skipped. " +
+      "A skipped file gets no complexity measures and is left out of the coupling between packages. " +
+      "As for the CodeNarc time limit per file, the CPU used by an abandoned analysis is not reclaimed. Leave empty for no limit.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = GroovyPlugin.PERFORMANCE_REPORT,
+    defaultValue = "false",
+    name = "Performance report",
+    description = "If set to \"true\", the wall time, files and bytes read, allocated bytes and heap used at the end of each phase of the Groovy sensors are logged " +
+      "and written to \"" + PerformanceReport.REPORT_FILE + "\" in the working directory, and a summary is logged once the module is analyzed.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = GroovyPlugin.SUREFIRE_STACK_TRACE_MAX_LENGTH,
+    name = "Maximum length of test stack traces",
+    description = "Maximum number of characters kept from each stack trace of a failed test while reading the Surefire reports. " +
+      "Longer stack traces are truncated, \"0\" drops them. Leave empty to keep stack traces whole.",
+    project = true,
+    module = true,
+    global = true,
+    type = PropertyType.INTEGER)
 })
 public class GroovyPlugin implements Plugin {
 
   @Deprecated public static final String CODENARC_REPORT_PATH = "sonar.groovy.codenarc.reportPath";
   public static final String CODENARC_REPORT_PATHS = "sonar.groovy.codenarc.reportPaths";
+  public static final String CODENARC_CHANGED_FILES_ONLY = "sonar.groovy.codenarc.changedFilesOnly";
+  public static final String CODENARC_PROFILING = "sonar.groovy.codenarc.profiling";
 
   public static final String COBERTURA_REPORT_PATH = "sonar.groovy.cobertura.reportPath";
   public static final String IGNORE_HEADER_COMMENTS = "sonar.groovy.ignoreHeaderComments";
+  public static final String CPD_NORMALIZATIONS = "sonar.groovy.cpd.normalizations";
 
   public static final String SONAR_GROOVY_BINARIES = "sonar.groovy.binaries";
   public static final String SONAR_GROOVY_BINARIES_FALLBACK = "sonar.binaries";
 
+  public static final String ANALYSIS_MAX_FILE_SIZE = "sonar.groovy.analysis.maxFileSize";
+  public static final String ANALYSIS_MAX_FILE_LINES = "sonar.groovy.analysis.maxFileLines";
+  public static final String ANALYSIS_GENERATED_FILE_MARKERS = "sonar.groovy.analysis.generatedFileMarkers";
+  public static final String FILE_ANALYSIS_TIMEOUT = "sonar.groovy.analysis.fileTimeout";
+  public static final String GMETRICS_ANALYSIS_TIMEOUT = "sonar.groovy.analysis.gmetricsTimeout";
+  public static final String PERFORMANCE_REPORT = "sonar.groovy.analysis.performanceReport";
+
+  public static final String SUREFIRE_STACK_TRACE_MAX_LENGTH = "sonar.groovy.surefire.stackTraceMaxLength";
+
   public static final String FILE_SUFFIXES_KEY = "sonar.groovy.file.suffixes";
   public static final String DEFAULT_FILE_SUFFIXES = ".groovy";
 
@@ -94,11 +203,13 @@ public class GroovyPlugin implements Plugin {
     context.addExtensions(
       // CodeNarc
       CodeNarcRulesDefinition.class,
+      CodeNarcRuleSetCache.class,
       CodeNarcSensor.class,
       SonarWayProfile.class,
       // Foundation
       Groovy.class,
       GroovyFileSystem.class,
+      PerformanceReport.class,
       // Main sensor
       GroovySensor.class,
       GroovyMetrics.class,
@@ -23,12 +23,10 @@ import groovyjarjarantlr.Token;
 import groovyjarjarantlr.TokenStream;
 import groovyjarjarantlr.TokenStreamException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.nio.charset.Charset;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -37,7 +35,6 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
-import org.apache.commons.io.FileUtils;
 import org.codehaus.groovy.antlr.GroovySourceToken;
 import org.codehaus.groovy.antlr.parser.GroovyLexer;
 import org.codehaus.groovy.antlr.parser.GroovyTokenTypes;
@@ -48,7 +45,6 @@ import org.gmetrics.result.SingleNumberMetricResult;
 import org.gmetrics.resultsnode.ClassResultsNode;
 import org.gmetrics.resultsnode.PackageResultsNode;
 import org.gmetrics.resultsnode.ResultsNode;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputDir;
 import org.sonar.api.batch.fs.InputFile;
@@ -66,7 +62,13 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
 import org.sonar.plugins.groovy.foundation.GroovyHighlighterAndTokenizer;
+import org.sonar.plugins.groovy.foundation.GroovyHighlighterAndTokenizer.CpdNormalization;
+import org.sonar.plugins.groovy.foundation.GroovySourceBuffer;
 import org.sonar.plugins.groovy.gmetrics.GMetricsSourceAnalyzer;
+import org.sonar.plugins.groovy.utils.FlightRecorder;
+import org.sonar.plugins.groovy.utils.FlightRecorder.Span;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
+import org.sonar.plugins.groovy.utils.PerformanceReport.Phase;
 
 public class GroovySensor implements Sensor {
   private static final Logger LOG = Loggers.get(GroovySensor.class);
@@ -83,16 +85,19 @@ public class GroovySensor implements Sensor {
   private final Settings settings;
   private final FileLinesContextFactory fileLinesContextFactory;
   private final GroovyFileSystem groovyFileSystem;
+  private final PerformanceReport performanceReport;
 
   private int loc = 0;
   private int comments = 0;
   private int currentLine = 0;
   private FileLinesContext fileLinesContext;
 
-  public GroovySensor(Settings settings, FileLinesContextFactory fileLinesContextFactory, FileSystem fileSystem) {
+  public GroovySensor(Settings settings, FileLinesContextFactory fileLinesContextFactory, GroovyFileSystem groovyFileSystem,
+    PerformanceReport performanceReport) {
     this.settings = settings;
     this.fileLinesContextFactory = fileLinesContextFactory;
-    this.groovyFileSystem = new GroovyFileSystem(fileSystem);
+    this.groovyFileSystem = groovyFileSystem;
+    this.performanceReport = performanceReport;
   }
 
   @Override
@@ -104,16 +109,39 @@ public class GroovySensor implements Sensor {
   public void execute(SensorContext context) {
     if (groovyFileSystem.hasGroovyFiles()) {
       List<InputFile> inputFiles = groovyFileSystem.sourceInputFiles();
-      computeBaseMetrics(context, inputFiles);
-      computeGroovyMetrics(context, inputFiles);
-      highlightFiles(context, groovyFileSystem.groovyInputFiles());
+      try (Phase phase = performanceReport.start(context, toString(), "base metrics")) {
+        phase.addFiles(inputFiles);
+        computeBaseMetrics(context, inputFiles);
+      }
+      try (Phase phase = performanceReport.start(context, toString(), "GMetrics")) {
+        phase.addFiles(inputFiles);
+        computeGroovyMetrics(context, inputFiles);
+      }
+      List<InputFile> groovyInputFiles = groovyFileSystem.groovyInputFiles();
+      try (Phase phase = performanceReport.start(context, toString(), "highlighting")) {
+        phase.addFiles(groovyInputFiles);
+        highlightFiles(context, groovyInputFiles);
+      }
+      logExcludedFiles(groovyFileSystem.excludedInputFiles());
+    }
+  }
+
+  private static void logExcludedFiles(List<InputFile> excludedFiles) {
+    if (!excludedFiles.isEmpty()) {
+      long bytes = 0;
+      long lines = 0;
+      for (InputFile inputFile : excludedFiles) {
+        bytes += inputFile.file().length();
+        lines += inputFile.lines();
+      }
+      LOG.info("{} large or generated file(s) excluded from analysis, {} bytes and {} lines not analysed", excludedFiles.size(), bytes, lines);
     }
   }
 
-  private static void computeGroovyMetrics(SensorContext context, List<InputFile> inputFiles) {
+  private void computeGroovyMetrics(SensorContext context, List<InputFile> inputFiles) {
     GMetricsSourceAnalyzer metricsAnalyzer = new GMetricsSourceAnalyzer(context.fileSystem(), inputFiles);
 
-    metricsAnalyzer.analyze();
+    metricsAnalyzer.analyze(settings.getLong(GroovyPlugin.GMETRICS_ANALYSIS_TIMEOUT) * 1000L);
 
     for (Entry<InputFile, List<ClassResultsNode>> entry : metricsAnalyzer.resultsByFile().entrySet()) {
       processFile(context, entry.getKey(), entry.getValue());
@@ -199,22 +227,23 @@ public class GroovySensor implements Sensor {
   }
 
   private void computeBaseMetrics(SensorContext context, List<InputFile> inputFiles) {
+    GroovySourceBuffer buffer = new GroovySourceBuffer();
     for (InputFile groovyFile : inputFiles) {
-      computeBaseMetrics(context, groovyFile);
+      computeBaseMetrics(context, groovyFile, buffer);
     }
   }
 
-  private void computeBaseMetrics(SensorContext context, InputFile groovyFile) {
+  private void computeBaseMetrics(SensorContext context, InputFile groovyFile, GroovySourceBuffer buffer) {
     File file = groovyFile.file();
     if (file.exists()) {
       loc = 0;
       comments = 0;
       currentLine = 0;
       fileLinesContext = fileLinesContextFactory.createFor(groovyFile);
-      Charset encoding = context.fileSystem().encoding();
-      try (InputStreamReader streamReader = new InputStreamReader(new FileInputStream(file), encoding)) {
-        List<String> lines = FileUtils.readLines(file, encoding);
-        GroovyLexer groovyLexer = new GroovyLexer(streamReader);
+      try (Span span = FlightRecorder.fileLexing(file, "metrics")) {
+        CharBuffer content = buffer.read(file, context.fileSystem().encoding());
+        List<String> lines = GroovySourceBuffer.lines(content);
+        GroovyLexer groovyLexer = new GroovyLexer(GroovySourceBuffer.reader(content));
         groovyLexer.setWhitespaceIncluded(true);
         TokenStream tokenStream = groovyLexer.plumb();
         Token token = tokenStream.nextToken();
@@ -237,9 +266,11 @@ public class GroovySensor implements Sensor {
     }
   }
 
-  private static void highlightFiles(SensorContext context, List<InputFile> inputFiles) {
+  private void highlightFiles(SensorContext context, List<InputFile> inputFiles) {
+    Set<CpdNormalization> cpdNormalizations = CpdNormalization.fromSettings(settings);
+    GroovySourceBuffer buffer = new GroovySourceBuffer();
     for (InputFile inputFile : inputFiles) {
-      new GroovyHighlighterAndTokenizer(inputFile).processFile(context);
+      new GroovyHighlighterAndTokenizer(inputFile, cpdNormalizations).processFile(context, buffer);
     }
   }
 
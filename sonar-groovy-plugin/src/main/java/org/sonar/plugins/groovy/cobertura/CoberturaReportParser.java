@@ -31,7 +31,6 @@ import javax.annotation.Nullable;
 import javax.xml.stream.XMLStreamException;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.staxmate.in.SMInputCursor;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.coverage.CoverageType;
@@ -40,6 +39,7 @@ import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
 import org.sonar.plugins.groovy.utils.StaxParser;
 
 import static java.util.Locale.ENGLISH;
@@ -50,12 +50,12 @@ public class CoberturaReportParser {
   private static final Logger LOG = Loggers.get(CoberturaReportParser.class);
 
   private final SensorContext context;
-  private final FileSystem fileSystem;
+  private final GroovyFileSystem groovyFileSystem;
   private List<String> sourceDirs = new ArrayList<>();
 
-  public CoberturaReportParser(SensorContext context, final FileSystem fileSystem) {
+  public CoberturaReportParser(SensorContext context, GroovyFileSystem groovyFileSystem) {
     this.context = context;
-    this.fileSystem = fileSystem;
+    this.groovyFileSystem = groovyFileSystem;
   }
 
   /**
@@ -126,7 +126,7 @@ public class CoberturaReportParser {
   private InputFile getInputFile(String filename, List<String> sourceDirs) {
     for (String sourceDir : sourceDirs) {
       String fileAbsolutePath = sourceDir + "/" + filename;
-      InputFile file = fileSystem.inputFile(fileSystem.predicates().hasAbsolutePath(fileAbsolutePath));
+      InputFile file = groovyFileSystem.inputFileFromAbsolutePath(fileAbsolutePath);
       if (file != null) {
         return file;
       }
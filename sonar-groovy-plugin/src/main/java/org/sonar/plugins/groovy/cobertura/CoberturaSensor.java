@@ -20,7 +20,6 @@
 package org.sonar.plugins.groovy.cobertura;
 
 import java.io.File;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
@@ -30,19 +29,21 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.groovy.GroovyPlugin;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
+import org.sonar.plugins.groovy.utils.PerformanceReport.Phase;
 
 public class CoberturaSensor implements Sensor {
 
   private static final Logger LOG = Loggers.get(CoberturaSensor.class);
 
   private final Settings settings;
-  private final FileSystem fileSystem;
   private final GroovyFileSystem groovyFileSystem;
+  private final PerformanceReport performanceReport;
 
-  public CoberturaSensor(Settings settings, FileSystem fileSystem) {
+  public CoberturaSensor(Settings settings, GroovyFileSystem groovyFileSystem, PerformanceReport performanceReport) {
     this.settings = settings;
-    this.fileSystem = fileSystem;
-    this.groovyFileSystem = new GroovyFileSystem(fileSystem);
+    this.groovyFileSystem = groovyFileSystem;
+    this.performanceReport = performanceReport;
   }
 
   @Override
@@ -69,11 +70,14 @@ public class CoberturaSensor implements Sensor {
     if (reportPath != null) {
       File xmlFile = new File(reportPath);
       if (!xmlFile.isAbsolute()) {
-        xmlFile = new File(fileSystem.baseDir(), reportPath);
+        xmlFile = new File(groovyFileSystem.baseDir(), reportPath);
       }
       if (xmlFile.exists()) {
         LOG.info("Analyzing Cobertura report: " + reportPath);
-        new CoberturaReportParser(context, fileSystem).parseReport(xmlFile);
+        try (Phase phase = performanceReport.start(context, toString(), "report import")) {
+          phase.addFile(xmlFile);
+          new CoberturaReportParser(context, groovyFileSystem).parseReport(xmlFile);
+        }
       } else {
         LOG.info("Cobertura xml report not found: " + reportPath);
       }
@@ -0,0 +1,216 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.codenarc.rule.Rule;
+import org.codenarc.rule.Violation;
+import org.codenarc.ruleset.ListRuleSet;
+import org.codenarc.ruleset.RuleSet;
+import org.codenarc.source.SourceCode;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Measures the cumulative wall time, CPU time and number of violations of each CodeNarc rule, and of each analysed file.
+ * The measures of a file, and of the rules applied to it, are only kept once they are {@link #record(FileProfile) recorded},
+ * so that the analysis of a file abandoned after a time limit leaves nothing behind.
+ */
+public class CodeNarcRuleProfiler {
+
+  private static final Logger LOG = Loggers.get(CodeNarcRuleProfiler.class);
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final Map<String, Stats> statsByRule = new HashMap<>();
+  private final Map<String, Stats> statsByFile = new HashMap<>();
+  private final ThreadLocal<Map<String, Stats>> fileStatsByRule = new ThreadLocal<>();
+
+  public RuleSet profile(RuleSet ruleSet) {
+    List<Rule> rules = new ArrayList<>();
+    for (Object rule : ruleSet.getRules()) {
+      rules.add(new ProfiledRule((Rule) rule));
+    }
+    return new ListRuleSet(rules);
+  }
+
+  public FileProfile profile(InputFile inputFile, FileAnalysis analysis) {
+    Map<String, Stats> statsByRuleOnFile = new HashMap<>();
+    fileStatsByRule.set(statsByRuleOnFile);
+    try {
+      long wallTime = System.nanoTime();
+      long cpuTime = currentThreadCpuTime();
+      List<Violation> violations = analysis.analyse();
+      Stats fileStats = new Stats(inputFile.relativePath());
+      fileStats.add(System.nanoTime() - wallTime, currentThreadCpuTime() - cpuTime, violations);
+      return new FileProfile(violations, fileStats, statsByRuleOnFile);
+    } finally {
+      fileStatsByRule.remove();
+    }
+  }
+
+  public synchronized void record(FileProfile fileProfile) {
+    merge(statsByFile, fileProfile.fileStats);
+    for (Stats ruleStats : fileProfile.statsByRule.values()) {
+      merge(statsByRule, ruleStats);
+    }
+  }
+
+  private static void merge(Map<String, Stats> statsByKey, Stats stats) {
+    Stats total = statsByKey.computeIfAbsent(stats.key, Stats::new);
+    total.executions += stats.executions;
+    total.wallTimeNanos += stats.wallTimeNanos;
+    total.cpuTimeNanos += stats.cpuTimeNanos;
+    total.violations += stats.violations;
+  }
+
+  public synchronized void writeReport(File report) {
+    try (Writer writer = Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8);
+      PrintWriter out = new PrintWriter(writer)) {
+      out.println("rule\twall time (ms)\tcpu time (ms)\tviolations\tfiles");
+      for (Stats stats : sorted(statsByRule)) {
+        out.println(stats.key + "\t" + millis(stats.wallTimeNanos) + "\t" + millis(stats.cpuTimeNanos) + "\t" + stats.violations + "\t" + stats.executions);
+      }
+      out.println();
+      out.println("file\twall time (ms)\tcpu time (ms)\tviolations");
+      for (Stats stats : sorted(statsByFile)) {
+        out.println(stats.key + "\t" + millis(stats.wallTimeNanos) + "\t" + millis(stats.cpuTimeNanos) + "\t" + stats.violations);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Can not write CodeNarc profiling report: " + report, e);
+    }
+  }
+
+  public synchronized void logSlowestRules(int count) {
+    List<Stats> rules = sorted(statsByRule);
+    for (Stats stats : rules.subList(0, Math.min(count, rules.size()))) {
+      LOG.info("CodeNarc rule {}: {} ms ({} ms CPU), {} violation(s)", stats.key, millis(stats.wallTimeNanos), millis(stats.cpuTimeNanos), stats.violations);
+    }
+  }
+
+  private static List<Stats> sorted(Map<String, Stats> statsByKey) {
+    List<Stats> result = new ArrayList<>(statsByKey.values());
+    result.sort(Comparator.comparingLong((Stats stats) -> stats.wallTimeNanos).reversed().thenComparing(stats -> stats.key));
+    return result;
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static long currentThreadCpuTime() {
+    return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0L;
+  }
+
+  @FunctionalInterface
+  public interface FileAnalysis {
+    List<Violation> analyse();
+  }
+
+  public static class FileProfile {
+    private final List<Violation> violations;
+    private final Stats fileStats;
+    private final Map<String, Stats> statsByRule;
+
+    private FileProfile(List<Violation> violations, Stats fileStats, Map<String, Stats> statsByRule) {
+      this.violations = violations;
+      this.fileStats = fileStats;
+      this.statsByRule = statsByRule;
+    }
+
+    public List<Violation> violations() {
+      return violations;
+    }
+  }
+
+  private static class Stats {
+    private final String key;
+    private int executions;
+    private long wallTimeNanos;
+    private long cpuTimeNanos;
+    private int violations;
+
+    Stats(String key) {
+      this.key = key;
+    }
+
+    void add(long wallTime, long cpuTime, @Nullable List<Violation> violations) {
+      this.executions++;
+      this.wallTimeNanos += wallTime;
+      this.cpuTimeNanos += cpuTime;
+      this.violations += violations == null ? 0 : violations.size();
+    }
+  }
+
+  private class ProfiledRule implements Rule {
+
+    private final Rule rule;
+
+    ProfiledRule(Rule rule) {
+      this.rule = rule;
+    }
+
+    @Override
+    public List<Violation> applyTo(SourceCode sourceCode) throws Throwable {
+      long wallTime = System.nanoTime();
+      long cpuTime = currentThreadCpuTime();
+      List<Violation> violations = null;
+      try {
+        violations = rule.applyTo(sourceCode);
+        return violations;
+      } finally {
+        Map<String, Stats> statsByRuleOnFile = fileStatsByRule.get();
+        if (statsByRuleOnFile != null) {
+          statsByRuleOnFile.computeIfAbsent(rule.getName(), Stats::new).add(System.nanoTime() - wallTime, currentThreadCpuTime() - cpuTime, violations);
+        }
+      }
+    }
+
+    @Override
+    public int getPriority() {
+      return rule.getPriority();
+    }
+
+    @Override
+    public String getName() {
+      return rule.getName();
+    }
+
+    @Override
+    public int getCompilerPhase() {
+      return rule.getCompilerPhase();
+    }
+  }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.util.function.Supplier;
+import org.codenarc.ruleset.RuleSet;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Instantiating the rules of a ruleset is costly, and the same profile is usually used by all the modules of an
+ * analysis: the last loaded ruleset is kept, for the duration of the analysis, for as long as the exported CodeNarc
+ * configuration does not change.
+ */
+@BatchSide
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class CodeNarcRuleSetCache {
+
+  private static final Logger LOG = Loggers.get(CodeNarcRuleSetCache.class);
+
+  private String configuration;
+  private RuleSet ruleSet;
+
+  public synchronized RuleSet get(String configuration, Supplier<RuleSet> loader) {
+    if (ruleSet == null || !configuration.equals(this.configuration)) {
+      ruleSet = loader.get();
+      this.configuration = configuration;
+    } else {
+      LOG.debug("Reusing CodeNarc ruleset");
+    }
+    return ruleSet;
+  }
+
+  /**
+   * Forgets the cached ruleset, whose rules may still be applied by abandoned analyses.
+   */
+  public synchronized void clear() {
+    configuration = null;
+    ruleSet = null;
+  }
+
+}
@@ -22,16 +22,28 @@ package org.sonar.plugins.groovy.codenarc;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.codenarc.CodeNarcRunner;
 import org.codenarc.rule.Violation;
+import org.codenarc.ruleset.RuleSet;
+import org.sonar.api.batch.AnalysisMode;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.sensor.Sensor;
@@ -47,17 +59,35 @@ import org.sonar.plugins.groovy.GroovyPlugin;
 import org.sonar.plugins.groovy.codenarc.CodeNarcXMLParser.CodeNarcViolation;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
+import org.sonar.plugins.groovy.utils.PerformanceReport.Phase;
 
 public class CodeNarcSensor implements Sensor {
 
   private static final Logger LOG = Loggers.get(CodeNarcSensor.class);
+  private static final int PARSER_THREADS = Runtime.getRuntime().availableProcessors();
+  private static final int PROFILING_LOGGED_RULES = 10;
 
   private final RulesProfile rulesProfile;
   private final GroovyFileSystem groovyFileSystem;
+  private final CodeNarcRuleSetCache ruleSetCache;
+  private final AnalysisMode analysisMode;
+  private final PerformanceReport performanceReport;
+  private final int parserThreads;
 
-  public CodeNarcSensor(RulesProfile profile, GroovyFileSystem groovyFileSystem) {
+  public CodeNarcSensor(RulesProfile profile, GroovyFileSystem groovyFileSystem, CodeNarcRuleSetCache ruleSetCache, AnalysisMode analysisMode,
+    PerformanceReport performanceReport) {
+    this(profile, groovyFileSystem, ruleSetCache, analysisMode, performanceReport, PARSER_THREADS);
+  }
+
+  CodeNarcSensor(RulesProfile profile, GroovyFileSystem groovyFileSystem, CodeNarcRuleSetCache ruleSetCache, AnalysisMode analysisMode,
+    PerformanceReport performanceReport, int parserThreads) {
     this.rulesProfile = profile;
     this.groovyFileSystem = groovyFileSystem;
+    this.ruleSetCache = ruleSetCache;
+    this.analysisMode = analysisMode;
+    this.performanceReport = performanceReport;
+    this.parserThreads = parserThreads;
   }
 
   @Override
@@ -88,26 +118,71 @@ public class CodeNarcSensor implements Sensor {
         }
       }
       if (!reports.isEmpty()) {
-        parseReport(context, reports);
+        try (Phase phase = performanceReport.start(context, "CodeNarc", "report import")) {
+          reports.forEach(phase::addFile);
+          parseReport(context, reports);
+        }
       }
     } else {
       // No, run CodeNarc
-      runCodeNarc(context);
+      try (Phase phase = performanceReport.start(context, "CodeNarc", "analysis")) {
+        runCodeNarc(context, phase);
+      }
     }
   }
 
+  /**
+   * Several reports are parsed concurrently, each one counting its own violations. Their issues are then saved in the
+   * order of the reports: a violation reported by several reports is saved as many times as the report reporting it the
+   * most, whatever the order in which the reports were parsed.
+   */
   private void parseReport(SensorContext context, List<File> reports) {
-    for (File report : reports) {
-      Collection<CodeNarcViolation> violations = CodeNarcXMLParser.parse(report, context.fileSystem());
-      for (CodeNarcViolation violation : violations) {
-        ActiveRule activeRule = context.activeRules().findByInternalKey(CodeNarcRulesDefinition.REPOSITORY_KEY, violation.getRuleName());
-        if (activeRule != null) {
-          InputFile inputFile = inputFileFor(context, violation.getFilename());
-          insertIssue(context, violation, activeRule.ruleKey(), inputFile);
-        } else {
-          LOG.warn("No such rule in SonarQube, so violation from CodeNarc will be ignored: {}", violation.getRuleName());
+    ActiveCodeNarcRules rules = new ActiveCodeNarcRules(context);
+    if (reports.size() == 1) {
+      CodeNarcXMLParser.parse(reports.get(0), groovyFileSystem, violation -> {
+        RuleKey ruleKey = rules.ruleKey(violation.getRuleName());
+        if (ruleKey != null) {
+          insertIssue(context, violation, ruleKey, violation.getInputFile());
         }
+      });
+    } else {
+      ReportViolations merged = new ReportViolations(rules);
+      parseConcurrently(reports, rules).forEach(merged::merge);
+      merged.save(context);
+    }
+    rules.logUnknownRules();
+  }
+
+  private List<ReportViolations> parseConcurrently(List<File> reports, ActiveCodeNarcRules rules) {
+    List<ReportViolations> violationsByReport = new ArrayList<>(reports.size());
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parserThreads, reports.size()));
+    try {
+      List<Future<?>> parsedReports = new ArrayList<>(reports.size());
+      for (File report : reports) {
+        ReportViolations violations = new ReportViolations(rules);
+        violationsByReport.add(violations);
+        parsedReports.add(executor.submit(() -> CodeNarcXMLParser.parse(report, groovyFileSystem, violations)));
+      }
+      for (Future<?> parsedReport : parsedReports) {
+        waitFor(parsedReport);
       }
+    } finally {
+      executor.shutdownNow();
+    }
+    return violationsByReport;
+  }
+
+  private static void waitFor(Future<?> parsedReport) {
+    try {
+      parsedReport.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing CodeNarc reports", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Unable to parse CodeNarc reports", e.getCause());
     }
   }
 
@@ -129,51 +204,96 @@ public class CodeNarcSensor implements Sensor {
     }
   }
 
-  private void runCodeNarc(SensorContext context) {
+  private void runCodeNarc(SensorContext context, Phase phase) {
     LOG.info("Executing CodeNarc");
 
     File workdir = new File(context.fileSystem().workDir(), "codenarc");
-    prepareWorkDir(workdir);
     File codeNarcConfiguration = new File(workdir, "profile.xml");
-    exportCodeNarcConfiguration(codeNarcConfiguration);
+    String configuration = exportCodeNarcConfiguration();
+    if (codeNarcConfiguration.isFile() && configuration.equals(readConfiguration(codeNarcConfiguration))) {
+      LOG.debug("Reusing CodeNarc configuration file: {}", codeNarcConfiguration);
+    } else {
+      prepareWorkDir(workdir);
+      writeConfiguration(codeNarcConfiguration, configuration);
+    }
 
-    CodeNarcRunner runner = new CodeNarcRunner();
+    CodeNarcRunner runner = new CachedRuleSetCodeNarcRunner(ruleSetCache, configuration);
     runner.setRuleSetFiles("file:" + codeNarcConfiguration.getAbsolutePath());
 
-    CodeNarcSourceAnalyzer analyzer = new CodeNarcSourceAnalyzer(groovyFileSystem.sourceInputFiles());
+    CodeNarcRuleProfiler profiler = context.settings().getBoolean(GroovyPlugin.CODENARC_PROFILING) ? new CodeNarcRuleProfiler() : null;
+    long fileTimeoutMillis = context.settings().getLong(GroovyPlugin.FILE_ANALYSIS_TIMEOUT) * 1000L;
+    List<InputFile> inputFiles = filesToAnalyse(context);
+    phase.addFiles(inputFiles);
+    CodeNarcSourceAnalyzer analyzer = new CodeNarcSourceAnalyzer(inputFiles, profiler, fileTimeoutMillis);
     runner.setSourceAnalyzer(analyzer);
     runner.execute();
+    if (!analyzer.getSkippedFiles().isEmpty()) {
+      // the abandoned analyses may still be applying the rules of the ruleset
+      ruleSetCache.clear();
+    }
+    if (profiler != null) {
+      File report = new File(workdir, "rules-profiling.txt");
+      profiler.writeReport(report);
+      LOG.info("CodeNarc profiling report written to {}", report);
+      profiler.logSlowestRules(PROFILING_LOGGED_RULES);
+    }
     reportViolations(context, analyzer.getViolationsByFile());
   }
 
-  private void reportViolations(SensorContext context, Map<InputFile, List<Violation>> violationsByFile) {
+  /**
+   * Rules of CodeNarc only look at one file at a time: the issues of a changed file do not depend on the other files.
+   * Unchanged files are only skipped in preview and issues modes: in publish mode, the server would close their issues.
+   */
+  private List<InputFile> filesToAnalyse(SensorContext context) {
+    List<InputFile> inputFiles = groovyFileSystem.sourceInputFiles();
+    if (!context.settings().getBoolean(GroovyPlugin.CODENARC_CHANGED_FILES_ONLY)) {
+      return inputFiles;
+    }
+    if (analysisMode.isIssues() || analysisMode.isPreview()) {
+      List<InputFile> changedFiles = inputFiles.stream()
+        .filter(inputFile -> inputFile.status() != InputFile.Status.SAME)
+        .collect(Collectors.toList());
+      LOG.info("CodeNarc restricted to {} changed file(s) out of {}", changedFiles.size(), inputFiles.size());
+      return changedFiles;
+    }
+    LOG.info("{} is ignored in publish mode, CodeNarc analyses all the files", GroovyPlugin.CODENARC_CHANGED_FILES_ONLY);
+    return inputFiles;
+  }
+
+  private static void reportViolations(SensorContext context, Map<InputFile, List<Violation>> violationsByFile) {
+    ActiveCodeNarcRules rules = new ActiveCodeNarcRules(context);
     for (Entry<InputFile, List<Violation>> violationsOnFile : violationsByFile.entrySet()) {
       InputFile groovyFile = violationsOnFile.getKey();
       if (groovyFile == null) {
         continue;
       }
       for (Violation violation : violationsOnFile.getValue()) {
-        String ruleKey = violation.getRule().getName();
-        ActiveRule activeRule = context.activeRules().findByInternalKey(CodeNarcRulesDefinition.REPOSITORY_KEY, ruleKey);
-        if (activeRule != null) {
-          insertIssue(context, activeRule.ruleKey(), violation.getLineNumber(), violation.getMessage(), groovyFile);
-        } else {
-          LOG.warn("No such rule in SonarQube, so violation from CodeNarc will be ignored: {}", ruleKey);
+        RuleKey ruleKey = rules.ruleKey(violation.getRule().getName());
+        if (ruleKey != null) {
+          insertIssue(context, ruleKey, violation.getLineNumber(), violation.getMessage(), groovyFile);
         }
       }
     }
+    rules.logUnknownRules();
   }
 
-  @CheckForNull
-  private InputFile inputFileFor(SensorContext context, String path) {
-    return context.fileSystem().inputFile(context.fileSystem().predicates().hasAbsolutePath(path));
+  private String exportCodeNarcConfiguration() {
+    StringWriter writer = new StringWriter();
+    new CodeNarcProfileExporter(writer).exportProfile(rulesProfile);
+    return writer.toString();
   }
 
-  private void exportCodeNarcConfiguration(File file) {
+  private static String readConfiguration(File file) {
     try {
-      StringWriter writer = new StringWriter();
-      new CodeNarcProfileExporter(writer).exportProfile(rulesProfile);
-      FileUtils.writeStringToFile(file, writer.toString());
+      return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Can not read CodeNarc configuration file", e);
+    }
+  }
+
+  private static void writeConfiguration(File file, String configuration) {
+    try {
+      FileUtils.writeStringToFile(file, configuration, StandardCharsets.UTF_8);
     } catch (IOException e) {
       throw new IllegalStateException("Can not generate CodeNarc configuration file", e);
     }
@@ -189,4 +309,114 @@ public class CodeNarcSensor implements Sensor {
     }
   }
 
+  private static class CachedRuleSetCodeNarcRunner extends CodeNarcRunner {
+
+    private final CodeNarcRuleSetCache ruleSetCache;
+    private final String configuration;
+
+    CachedRuleSetCodeNarcRunner(CodeNarcRuleSetCache ruleSetCache, String configuration) {
+      this.ruleSetCache = ruleSetCache;
+      this.configuration = configuration;
+    }
+
+    @Override
+    protected RuleSet createRuleSet() {
+      return ruleSetCache.get(configuration, this::loadRuleSet);
+    }
+
+    private RuleSet loadRuleSet() {
+      return super.createRuleSet();
+    }
+  }
+
+  /**
+   * Occurrences of the violations of a report, by file, rule, line and message. A report is filled by a single thread.
+   */
+  private static class ReportViolations implements Consumer<CodeNarcViolation> {
+
+    private final ActiveCodeNarcRules rules;
+    private final Map<InputFile, Map<String, Occurrences>> occurrencesByFile = new LinkedHashMap<>();
+
+    ReportViolations(ActiveCodeNarcRules rules) {
+      this.rules = rules;
+    }
+
+    @Override
+    public void accept(CodeNarcViolation violation) {
+      RuleKey ruleKey = rules.ruleKey(violation.getRuleName());
+      InputFile inputFile = violation.getInputFile();
+      if (ruleKey != null && inputFile != null) {
+        String key = violation.getRuleName() + '\n' + violation.getLine() + '\n' + violation.getMessage();
+        occurrencesByFile.computeIfAbsent(inputFile, file -> new LinkedHashMap<>())
+          .computeIfAbsent(key, k -> new Occurrences(violation, ruleKey))
+          .count++;
+      }
+    }
+
+    void merge(ReportViolations report) {
+      report.occurrencesByFile.forEach((inputFile, occurrencesByViolation) -> {
+        Map<String, Occurrences> merged = occurrencesByFile.computeIfAbsent(inputFile, file -> new LinkedHashMap<>());
+        occurrencesByViolation.forEach((key, occurrences) -> {
+          Occurrences mergedOccurrences = merged.computeIfAbsent(key, k -> new Occurrences(occurrences.violation, occurrences.ruleKey));
+          mergedOccurrences.count = Math.max(mergedOccurrences.count, occurrences.count);
+        });
+      });
+    }
+
+    void save(SensorContext context) {
+      occurrencesByFile.forEach((inputFile, occurrencesByViolation) -> {
+        for (Occurrences occurrences : occurrencesByViolation.values()) {
+          for (int i = 0; i < occurrences.count; i++) {
+            insertIssue(context, occurrences.violation, occurrences.ruleKey, inputFile);
+          }
+        }
+      });
+    }
+  }
+
+  private static class Occurrences {
+
+    private final CodeNarcViolation violation;
+    private final RuleKey ruleKey;
+    private int count;
+
+    Occurrences(CodeNarcViolation violation, RuleKey ruleKey) {
+      this.violation = violation;
+      this.ruleKey = ruleKey;
+    }
+  }
+
+  /**
+   * Rule keys of the active CodeNarc rules, by internal key, built once per analysis. Violations of rules which are
+   * unknown to SonarQube are counted, and reported once per rule.
+   */
+  private static class ActiveCodeNarcRules {
+
+    private final Map<String, RuleKey> ruleKeysByInternalKey = new HashMap<>();
+    private final Map<String, Integer> unknownRules = new ConcurrentHashMap<>();
+
+    ActiveCodeNarcRules(SensorContext context) {
+      for (ActiveRule activeRule : context.activeRules().findByRepository(CodeNarcRulesDefinition.REPOSITORY_KEY)) {
+        if (activeRule.internalKey() != null) {
+          ruleKeysByInternalKey.put(activeRule.internalKey(), activeRule.ruleKey());
+        }
+      }
+    }
+
+    @CheckForNull
+    RuleKey ruleKey(String internalKey) {
+      RuleKey ruleKey = ruleKeysByInternalKey.get(internalKey);
+      if (ruleKey == null) {
+        unknownRules.merge(internalKey, 1, Integer::sum);
+      }
+      return ruleKey;
+    }
+
+    void logUnknownRules() {
+      for (Entry<String, Integer> unknownRule : new TreeMap<>(unknownRules).entrySet()) {
+        LOG.warn("No such rule in SonarQube, so {} violation(s) from CodeNarc will be ignored: {}", unknownRule.getValue(), unknownRule.getKey());
+      }
+    }
+  }
+
 }
@@ -25,27 +25,65 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.codehaus.groovy.control.Phases;
 import org.codenarc.analyzer.AbstractSourceAnalyzer;
 import org.codenarc.results.DirectoryResults;
 import org.codenarc.results.FileResults;
 import org.codenarc.results.Results;
+import org.codenarc.rule.Rule;
 import org.codenarc.rule.Violation;
 import org.codenarc.ruleset.RuleSet;
 import org.codenarc.source.SourceFile;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.groovy.codenarc.CodeNarcRuleProfiler.FileAnalysis;
+import org.sonar.plugins.groovy.codenarc.CodeNarcRuleProfiler.FileProfile;
+import org.sonar.plugins.groovy.utils.FlightRecorder;
+import org.sonar.plugins.groovy.utils.FlightRecorder.Span;
+import org.sonar.plugins.groovy.utils.TimeLimitedWorker;
 
 public class CodeNarcSourceAnalyzer extends AbstractSourceAnalyzer {
 
+  private static final Logger LOG = Loggers.get(CodeNarcSourceAnalyzer.class);
+
   private final Map<InputFile, List<Violation>> violationsByFile = new HashMap<>();
   private final List<InputFile> sourceFiles;
+  private final CodeNarcRuleProfiler profiler;
+  private final long fileTimeoutMillis;
+  private final List<InputFile> skippedFiles = new ArrayList<>();
 
   public CodeNarcSourceAnalyzer(List<InputFile> sourceFiles) {
+    this(sourceFiles, null);
+  }
+
+  public CodeNarcSourceAnalyzer(List<InputFile> sourceFiles, @Nullable CodeNarcRuleProfiler profiler) {
+    this(sourceFiles, profiler, 0L);
+  }
+
+  /**
+   * @param fileTimeoutMillis time after which the analysis of a file is abandoned, no limit when not positive
+   */
+  public CodeNarcSourceAnalyzer(List<InputFile> sourceFiles, @Nullable CodeNarcRuleProfiler profiler, long fileTimeoutMillis) {
     this.sourceFiles = sourceFiles;
+    this.profiler = profiler;
+    this.fileTimeoutMillis = fileTimeoutMillis;
   }
 
   @Override
   public Results analyze(RuleSet ruleSet) {
-    Map<File, List<FileResults>> resultsByFileByDirectory = processFiles(ruleSet);
+    logCompilerPhases(ruleSet);
+    RuleSet rules = ruleSet;
+    if (profiler != null) {
+      rules = profiler.profile(rules);
+    }
+    Map<File, List<FileResults>> resultsByFileByDirectory = processFiles(rules);
     DirectoryResults directoryResults = new DirectoryResults(".");
     for (List<FileResults> fileResults : resultsByFileByDirectory.values()) {
       fileResults.forEach(directoryResults::addChild);
@@ -53,18 +91,87 @@ public class CodeNarcSourceAnalyzer extends AbstractSourceAnalyzer {
     return directoryResults;
   }
 
+  /**
+   * CodeNarc parses each file once up to the conversion phase, and shares that AST between rules: the file is compiled
+   * again only for the phases required by other rules. The rules requiring a later phase are logged, as each of those
+   * phases adds a compilation of every file.
+   */
+  static void logCompilerPhases(RuleSet ruleSet) {
+    Map<Integer, List<String>> rulesByPhase = new TreeMap<>();
+    for (Object rule : ruleSet.getRules()) {
+      rulesByPhase.computeIfAbsent(((Rule) rule).getCompilerPhase(), phase -> new ArrayList<>()).add(((Rule) rule).getName());
+    }
+    for (Map.Entry<Integer, List<String>> phaseRules : rulesByPhase.entrySet()) {
+      List<String> names = phaseRules.getValue();
+      if (phaseRules.getKey() > Phases.CONVERSION) {
+        LOG.info("{} CodeNarc rule(s) compiling files up to the {} phase: {}", names.size(), Phases.getDescription(phaseRules.getKey()), names);
+      } else {
+        LOG.debug("{} CodeNarc rule(s) using the {} phase", names.size(), Phases.getDescription(phaseRules.getKey()));
+      }
+    }
+  }
+
   private Map<File, List<FileResults>> processFiles(RuleSet ruleSet) {
     Map<File, List<FileResults>> results = new HashMap<>();
-    for (InputFile inputFile : sourceFiles) {
-      List<Violation> violations = collectViolations(new SourceFile(inputFile.file()), ruleSet);
-      violationsByFile.put(inputFile, violations);
-      FileResults result = new FileResults(inputFile.absolutePath(), violations);
-      results.putIfAbsent(inputFile.file().getParentFile(), new LinkedList<>());
-      results.get(inputFile.file().getParentFile()).add(result);
+    try (TimeLimitedWorker worker = new TimeLimitedWorker("CodeNarc file analysis")) {
+      for (InputFile inputFile : sourceFiles) {
+        List<Violation> violations = collectViolations(inputFile, ruleSet, worker);
+        if (violations != null) {
+          violationsByFile.put(inputFile, violations);
+          FileResults result = new FileResults(inputFile.absolutePath(), violations);
+          results.putIfAbsent(inputFile.file().getParentFile(), new LinkedList<>());
+          results.get(inputFile.file().getParentFile()).add(result);
+        }
+      }
+    }
+    if (!skippedFiles.isEmpty()) {
+      LOG.warn("CodeNarc analysis skipped {} file(s) exceeding the time limit of {} ms, or left over while abandoned analyses were still running: {}",
+        skippedFiles.size(), fileTimeoutMillis, skippedFiles);
     }
     return results;
   }
 
+  @CheckForNull
+  private List<Violation> collectViolations(InputFile inputFile, RuleSet ruleSet, TimeLimitedWorker worker) {
+    FileAnalysis analysis = () -> {
+      try (Span span = FlightRecorder.codeNarcFileAnalysis(inputFile.file())) {
+        return collectViolations(new SourceFile(inputFile.file()), ruleSet);
+      }
+    };
+    if (profiler == null) {
+      return callWithinTimeLimit(inputFile, analysis::analyse, worker);
+    }
+    // the measures of an abandoned analysis are never recorded, even when it completes later on
+    FileProfile fileProfile = callWithinTimeLimit(inputFile, () -> profiler.profile(inputFile, analysis), worker);
+    if (fileProfile == null) {
+      return null;
+    }
+    profiler.record(fileProfile);
+    return fileProfile.violations();
+  }
+
+  @CheckForNull
+  private <T> T callWithinTimeLimit(InputFile inputFile, Supplier<T> analysis, TimeLimitedWorker worker) {
+    if (fileTimeoutMillis <= 0) {
+      return analysis.get();
+    }
+    try {
+      return worker.call(analysis::get, fileTimeoutMillis);
+    } catch (TimeoutException e) {
+      LOG.warn("CodeNarc analysis of {} abandoned after {} ms", inputFile, fileTimeoutMillis);
+      skippedFiles.add(inputFile);
+      return null;
+    } catch (RejectedExecutionException e) {
+      LOG.warn("CodeNarc analysis of {} skipped: {}", inputFile, e.getMessage());
+      skippedFiles.add(inputFile);
+      return null;
+    }
+  }
+
+  public List<InputFile> getSkippedFiles() {
+    return skippedFiles;
+  }
+
   @Override
   public List<?> getSourceDirectories() {
     return new ArrayList<>();
@@ -23,32 +23,44 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import javax.xml.stream.XMLStreamException;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.staxmate.in.SMHierarchicCursor;
 import org.codehaus.staxmate.in.SMInputCursor;
-import org.sonar.api.batch.fs.FilePredicates;
-import org.sonar.api.batch.fs.FileSystem;
-import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
 import org.sonar.plugins.groovy.utils.StaxParser;
 
 public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
 
-  private final List<CodeNarcViolation> result = new ArrayList<>();
-  private final FileSystem fileSystem;
+  private final GroovyFileSystem groovyFileSystem;
+  private final Consumer<CodeNarcViolation> violationHandler;
 
-  private CodeNarcXMLParser(final FileSystem fileSystem) {
-    this.fileSystem = fileSystem;
+  private CodeNarcXMLParser(GroovyFileSystem groovyFileSystem, Consumer<CodeNarcViolation> violationHandler) {
+    this.groovyFileSystem = groovyFileSystem;
+    this.violationHandler = violationHandler;
   }
 
-  public static List<CodeNarcViolation> parse(File file, FileSystem fileSystem) {
-    CodeNarcXMLParser handler = new CodeNarcXMLParser(fileSystem);
+  public static List<CodeNarcViolation> parse(File file, GroovyFileSystem groovyFileSystem) {
+    List<CodeNarcViolation> result = new ArrayList<>();
+    parse(file, groovyFileSystem, result::add);
+    return result;
+  }
+
+  /**
+   * Violations are handed over one at a time, as soon as they are read, so that the report is never held in memory.
+   * Several reports can be parsed against the same index of main files, the one of {@link GroovyFileSystem}.
+   */
+  public static void parse(File file, GroovyFileSystem groovyFileSystem, Consumer<CodeNarcViolation> violationHandler) {
+    CodeNarcXMLParser handler = new CodeNarcXMLParser(groovyFileSystem, violationHandler);
     try {
       new StaxParser(handler).parse(file);
     } catch (XMLStreamException e) {
       throw new IllegalStateException("Unabel to parse file: " + file, e);
     }
-    return handler.result;
   }
 
   @Override
@@ -70,7 +82,16 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
     String packPath = items.getAttrValue("path");
     SMInputCursor file = items.descendantElementCursor("File");
     while (file.getNext() != null) {
-      String filename = getFilename(sourceDirectories, packPath, file.getAttrValue("name"));
+      String attrFilename = file.getAttrValue("name");
+      String filename = packPath + "/" + attrFilename;
+      InputFile inputFile = null;
+      for (String directory : sourceDirectories) {
+        inputFile = groovyFileSystem.sourceInputFileFromAbsolutePath(directory + filename);
+        if (inputFile != null) {
+          filename = directory + filename;
+          break;
+        }
+      }
       SMInputCursor violation = file.childElementCursor("Violation");
       while (violation.getNext() != null) {
         String lineNumber = violation.getAttrValue("lineNumber");
@@ -79,7 +100,7 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
         SMInputCursor messageCursor = violation.childElementCursor("Message");
         String message = messageCursor.getNext() == null ? "" : messageCursor.collectDescendantText(true);
 
-        result.add(new CodeNarcViolation(ruleName, filename, lineNumber, message));
+        violationHandler.accept(new CodeNarcViolation(ruleName, filename, inputFile, lineNumber, message));
       }
     }
   }
@@ -94,26 +115,21 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
     }
   }
 
-  private String getFilename(List<String> sourceDirectories, String packPath, String attrFilename) throws XMLStreamException {
-    FilePredicates pred = fileSystem.predicates();
-    for (String directory : sourceDirectories) {
-      String path = directory + packPath + "/" + attrFilename;
-      if (fileSystem.hasFiles(pred.and(pred.hasType(Type.MAIN), pred.hasAbsolutePath(path)))) {
-        return path;
-      }
-    }
-    return packPath + "/" + attrFilename;
-  }
-
   public static class CodeNarcViolation {
     private final String ruleName;
     private final String filename;
+    private final InputFile inputFile;
     private final Integer line;
     private final String message;
 
     public CodeNarcViolation(String ruleName, String filename, String lineNumber, String message) {
+      this(ruleName, filename, null, lineNumber, message);
+    }
+
+    public CodeNarcViolation(String ruleName, String filename, @Nullable InputFile inputFile, String lineNumber, String message) {
       this.ruleName = ruleName;
       this.filename = filename;
+      this.inputFile = inputFile;
       this.line = StringUtils.isBlank(lineNumber) ? null : Integer.parseInt(lineNumber);
       this.message = message;
     }
@@ -126,6 +142,14 @@ public final class CodeNarcXMLParser implements StaxParser.XmlStreamHandler {
       return filename;
     }
 
+    /**
+     * The main file of the analysed project the violation was reported on, if any.
+     */
+    @CheckForNull
+    public InputFile getInputFile() {
+      return inputFile;
+    }
+
     public Integer getLine() {
       return line;
     }
@@ -20,29 +20,61 @@
 package org.sonar.plugins.groovy.foundation;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.fs.FilePredicate;
-import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.PathUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.groovy.GroovyPlugin;
 
 @BatchSide
 public class GroovyFileSystem {
 
+  private static final Logger LOG = Loggers.get(GroovyFileSystem.class);
+  private static final int GENERATED_FILE_HEADER_LENGTH = 2048;
+
   private final FileSystem fileSystem;
-  private final FilePredicates predicates;
   private final FilePredicate isGroovyLanguage;
-  private final FilePredicate isMainTypeFile;
+
+  private final long maxFileSize;
+  private final int maxFileLines;
+  private final List<String> generatedFileMarkers;
+
+  private volatile FileIndex index;
 
   public GroovyFileSystem(FileSystem fileSystem) {
+    this(fileSystem, new Settings());
+  }
+
+  public GroovyFileSystem(FileSystem fileSystem, Settings settings) {
     this.fileSystem = fileSystem;
-    this.predicates = fileSystem.predicates();
-    this.isGroovyLanguage = predicates.hasLanguage(Groovy.KEY);
-    this.isMainTypeFile = predicates.hasType(Type.MAIN);
+    this.isGroovyLanguage = fileSystem.predicates().hasLanguage(Groovy.KEY);
+    this.maxFileSize = settings.getLong(GroovyPlugin.ANALYSIS_MAX_FILE_SIZE) * 1024L;
+    this.maxFileLines = settings.getInt(GroovyPlugin.ANALYSIS_MAX_FILE_LINES);
+    this.generatedFileMarkers = Arrays.asList(settings.getStringArray(GroovyPlugin.ANALYSIS_GENERATED_FILE_MARKERS));
   }
 
   public boolean hasGroovyFiles() {
@@ -50,33 +82,192 @@ public class GroovyFileSystem {
   }
 
   public List<File> sourceFiles() {
-    Iterable<File> files = fileSystem.files(predicates.and(isGroovyLanguage, isMainTypeFile));
-    List<File> list = new ArrayList<>();
-    files.iterator().forEachRemaining(list::add);
-    return list;
+    return index().mainFiles.stream().map(InputFile::file).collect(Collectors.toList());
   }
 
+  /**
+   * Groovy files to analyse: files excluded by the large and generated file policy are left out.
+   */
   public List<InputFile> groovyInputFiles() {
-    Iterable<InputFile> inputFiles = fileSystem.inputFiles(isGroovyLanguage);
-    List<InputFile> list = new ArrayList<>();
-    inputFiles.iterator().forEachRemaining(list::add);
-    return list;
+    return index().analysedFiles;
   }
 
+  /**
+   * Main Groovy files to analyse: files excluded by the large and generated file policy are left out.
+   */
   public List<InputFile> sourceInputFiles() {
-    Iterable<InputFile> inputFiles = fileSystem.inputFiles(predicates.and(isGroovyLanguage, isMainTypeFile));
-    List<InputFile> list = new ArrayList<>();
-    inputFiles.iterator().forEachRemaining(list::add);
-    return list;
+    return index().analysedMainFiles;
+  }
+
+  /**
+   * Files exceeding the size or line thresholds, or containing a generated file marker in their header.
+   */
+  public List<InputFile> excludedInputFiles() {
+    return index().excludedFiles;
   }
 
+  /**
+   * Groovy file, main or test, analysed or not, with the given absolute path.
+   */
   @CheckForNull
-  public InputFile sourceInputFileFromRelativePath(String relativePath) {
-    return fileSystem.inputFile(predicates.and(predicates.matchesPathPattern("**/" + relativePath), isGroovyLanguage, isMainTypeFile));
+  public InputFile inputFileFromAbsolutePath(String absolutePath) {
+    String sanitizedPath = PathUtils.sanitize(absolutePath);
+    return sanitizedPath == null ? null : index().byAbsolutePath.get(sanitizedPath);
+  }
+
+  /**
+   * Main Groovy file, analysed or not, with the given absolute path.
+   */
+  @CheckForNull
+  public InputFile sourceInputFileFromAbsolutePath(String absolutePath) {
+    InputFile inputFile = inputFileFromAbsolutePath(absolutePath);
+    return inputFile != null && inputFile.type() == Type.MAIN ? inputFile : null;
+  }
+
+  /**
+   * Groovy file, main or test, analysed or not, with the given path relative to the module base directory.
+   */
+  @CheckForNull
+  public InputFile inputFileFromRelativePath(String relativePath) {
+    return index().byRelativePath.get(relativePath);
+  }
+
+  /**
+   * Main Groovy file whose relative path ends with the given path, such as a path relative to a source directory, as
+   * found in coverage reports. Returns null when several files match.
+   */
+  @CheckForNull
+  public InputFile sourceInputFileFromRelativePath(@Nullable String relativePath) {
+    if (relativePath == null) {
+      return null;
+    }
+    return index().mainFileByPathSuffix.get(relativePath);
   }
 
   public File baseDir() {
     return fileSystem.baseDir();
   }
 
+  /**
+   * Files are indexed on first use, the file system being complete once sensors are executed. Lookups may come from
+   * several threads, such as the ones parsing CodeNarc reports.
+   */
+  private FileIndex index() {
+    FileIndex result = index;
+    if (result == null) {
+      synchronized (this) {
+        result = index;
+        if (result == null) {
+          result = new FileIndex(fileSystem.inputFiles(isGroovyLanguage), this::isExcluded);
+          index = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Immutable snapshot of the Groovy files of the module.
+   */
+  private static final class FileIndex {
+    private final List<InputFile> mainFiles = new ArrayList<>();
+    private final List<InputFile> analysedFiles;
+    private final List<InputFile> analysedMainFiles;
+    private final List<InputFile> excludedFiles;
+    private final Map<String, InputFile> byAbsolutePath = new HashMap<>();
+    private final Map<String, InputFile> byRelativePath = new HashMap<>();
+    private final Map<String, InputFile> mainFileByPathSuffix = new HashMap<>();
+
+    private FileIndex(Iterable<InputFile> groovyFiles, Predicate<InputFile> isExcluded) {
+      List<InputFile> analysed = new ArrayList<>();
+      List<InputFile> analysedMain = new ArrayList<>();
+      List<InputFile> excluded = new ArrayList<>();
+      Set<String> ambiguousSuffixes = new HashSet<>();
+      for (InputFile inputFile : groovyFiles) {
+        boolean isMain = inputFile.type() == Type.MAIN;
+        if (isExcluded.test(inputFile)) {
+          excluded.add(inputFile);
+        } else {
+          analysed.add(inputFile);
+          if (isMain) {
+            analysedMain.add(inputFile);
+          }
+        }
+        byAbsolutePath.put(inputFile.absolutePath(), inputFile);
+        byRelativePath.put(inputFile.relativePath(), inputFile);
+        if (isMain) {
+          mainFiles.add(inputFile);
+          indexPathSuffixes(inputFile, ambiguousSuffixes);
+        }
+      }
+      mainFileByPathSuffix.keySet().removeAll(ambiguousSuffixes);
+      this.analysedFiles = Collections.unmodifiableList(analysed);
+      this.analysedMainFiles = Collections.unmodifiableList(analysedMain);
+      this.excludedFiles = Collections.unmodifiableList(excluded);
+    }
+
+    private void indexPathSuffixes(InputFile inputFile, Set<String> ambiguousSuffixes) {
+      String relativePath = inputFile.relativePath();
+      int start = 0;
+      while (start >= 0) {
+        String suffix = relativePath.substring(start);
+        if (mainFileByPathSuffix.putIfAbsent(suffix, inputFile) != null) {
+          ambiguousSuffixes.add(suffix);
+        }
+        int separator = relativePath.indexOf('/', start);
+        start = separator < 0 ? -1 : (separator + 1);
+      }
+    }
+  }
+
+  private boolean isExcluded(InputFile inputFile) {
+    if (maxFileSize <= 0 && maxFileLines <= 0 && generatedFileMarkers.isEmpty()) {
+      return false;
+    }
+    String reason = exclusionReason(inputFile);
+    if (reason != null) {
+      LOG.info("Excluded from analysis, {}: {}", reason, inputFile);
+    }
+    return reason != null;
+  }
+
+  @CheckForNull
+  private String exclusionReason(InputFile inputFile) {
+    long size = inputFile.file().length();
+    if (maxFileSize > 0 && size > maxFileSize) {
+      return size + " bytes";
+    }
+    if (maxFileLines > 0 && inputFile.lines() > maxFileLines) {
+      return inputFile.lines() + " lines";
+    }
+    if (!generatedFileMarkers.isEmpty()) {
+      String header = readHeader(inputFile);
+      for (String marker : generatedFileMarkers) {
+        if (header.contains(marker)) {
+          return "generated file marker \"" + marker + "\"";
+        }
+      }
+    }
+    return null;
+  }
+
+  private String readHeader(InputFile inputFile) {
+    char[] header = new char[GENERATED_FILE_HEADER_LENGTH];
+    // malformed bytes are replaced, as the scanner does, rather than failing the marker check
+    CharsetDecoder decoder = fileSystem.encoding().newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    try (Reader reader = new InputStreamReader(Files.newInputStream(inputFile.path()), decoder)) {
+      int length = 0;
+      int read;
+      while (length < header.length && (read = reader.read(header, length, header.length - length)) != -1) {
+        length += read;
+      }
+      return new String(header, 0, length);
+    } catch (IOException e) {
+      LOG.warn("Unable to read the header of {}: {}", inputFile, e.getMessage());
+      return StringUtils.EMPTY;
+    }
+  }
+
 }
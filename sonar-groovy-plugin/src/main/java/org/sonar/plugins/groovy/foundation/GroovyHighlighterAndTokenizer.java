@@ -23,13 +23,12 @@ import groovyjarjarantlr.Token;
 import groovyjarjarantlr.TokenStream;
 import groovyjarjarantlr.TokenStreamException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.groovy.antlr.GroovySourceToken;
@@ -40,13 +39,57 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.groovy.GroovyPlugin;
+import org.sonar.plugins.groovy.utils.FlightRecorder;
+import org.sonar.plugins.groovy.utils.FlightRecorder.Span;
 
 public class GroovyHighlighterAndTokenizer {
 
   private static final Logger LOG = Loggers.get(GroovyHighlighterAndTokenizer.class);
 
+  /**
+   * CPD image shared by all string literals, which are not taken into account when looking for duplications.
+   */
+  private static final String LITERAL_IMAGE = "LITERAL";
+  private static final String NUMBER_IMAGE = "NUMBER";
+  private static final String IDENTIFIER_IMAGE = "IDENTIFIER";
+
+  /**
+   * Normalizations applied to the tokens sent to CPD, making their images less unique so that the duplication index
+   * gets smaller, at the cost of reporting as duplicated some blocks differing on numbers or names.
+   */
+  public enum CpdNormalization {
+    /**
+     * Numeric literals all get the same image.
+     */
+    NUMBERS,
+    /**
+     * Comments are not sent to CPD.
+     */
+    COMMENTS,
+    /**
+     * Identifiers all get the same image.
+     */
+    IDENTIFIERS;
+
+    public static Set<CpdNormalization> fromSettings(Settings settings) {
+      Set<CpdNormalization> normalizations = EnumSet.noneOf(CpdNormalization.class);
+      for (String value : settings.getStringArray(GroovyPlugin.CPD_NORMALIZATIONS)) {
+        try {
+          normalizations.add(valueOf(value.trim().toUpperCase(Locale.ENGLISH)));
+        } catch (IllegalArgumentException e) {
+          throw MessageException.of("Unknown CPD normalization \"" + value + "\" in " + GroovyPlugin.CPD_NORMALIZATIONS
+            + ", expected one of: numbers, comments, identifiers", e);
+        }
+      }
+      return normalizations;
+    }
+  }
+
   private static final int[] KEYWORDS = {
     GroovyLexer.LITERAL_as,
     GroovyLexer.LITERAL_assert,
@@ -142,38 +185,66 @@ public class GroovyHighlighterAndTokenizer {
     GroovyLexer.SL_COMMENT
   };
 
-  private static final List<TypeOfTextToTokenTypes> HIGHLIGHTING_MAPPING = Arrays.asList(
-    new TypeOfTextToTokenTypes(TypeOfText.KEYWORD, KEYWORDS),
-    new TypeOfTextToTokenTypes(TypeOfText.STRING, STRINGS),
-    new TypeOfTextToTokenTypes(TypeOfText.CONSTANT, CONSTANTS),
-    new TypeOfTextToTokenTypes(TypeOfText.COMMENT, COMMENTS));
+  /**
+   * Type of text of each token type, indexed by token type.
+   */
+  private static final TypeOfText[] TYPE_OF_TEXT_BY_TOKEN_TYPE = typeOfTextByTokenType();
 
   private final InputFile inputFile;
   private final File file;
+  private final Set<CpdNormalization> cpdNormalizations;
   private boolean isAnnotation;
 
   public GroovyHighlighterAndTokenizer(InputFile inputFile) {
+    this(inputFile, EnumSet.noneOf(CpdNormalization.class));
+  }
+
+  public GroovyHighlighterAndTokenizer(InputFile inputFile, Set<CpdNormalization> cpdNormalizations) {
     this.inputFile = inputFile;
     this.file = inputFile.file();
+    this.cpdNormalizations = cpdNormalizations;
   }
 
   public void processFile(SensorContext context) {
-    List<GroovyToken> tokens = new ArrayList<>();
+    processFile(context, new GroovySourceBuffer());
+  }
+
+  /**
+   * Tokens are pushed to the highlighting and CPD builders as soon as they are read, both builders being created with
+   * the first token which is not blank. The file is read through the given buffer, which can be reused for other files.
+   */
+  public void processFile(SensorContext context, GroovySourceBuffer buffer) {
     isAnnotation = false;
+    boolean isNotTest = inputFile.type() != InputFile.Type.TEST;
+    NewHighlighting highlighting = null;
+    NewCpdTokens cpdTokens = null;
 
-    try (InputStreamReader streamReader = new InputStreamReader(new FileInputStream(file), context.fileSystem().encoding())) {
-      GroovyLexer groovyLexer = new GroovyLexer(streamReader);
-      groovyLexer.setWhitespaceIncluded(true);
+    try (Span span = FlightRecorder.fileLexing(file, "highlighting")) {
+      GroovyLexer groovyLexer = buffer.lexer(file, context.fileSystem().encoding());
       TokenStream tokenStream = groovyLexer.plumb();
       Token token = tokenStream.nextToken();
 
       int type = token.getType();
       while (type != Token.EOF_TYPE) {
         String text = token.getText();
-        TypeOfText typeOfText = typeOfText(type, text).orElse(null);
-        GroovySourceToken gst = (GroovySourceToken) token;
+        TypeOfText typeOfText = typeOfText(type, text);
         if (StringUtils.isNotBlank(text)) {
-          tokens.add(new GroovyToken(token.getLine(), token.getColumn(), gst.getLineLast(), gst.getColumnLast(), getImage(token, text), typeOfText));
+          if (highlighting == null) {
+            highlighting = context.newHighlighting().onFile(inputFile);
+            cpdTokens = isNotTest ? context.newCpdTokens().onFile(inputFile) : null;
+          }
+          GroovySourceToken gst = (GroovySourceToken) token;
+          int startLine = token.getLine();
+          int startColumn = token.getColumn() - 1;
+          int endLine = gst.getLineLast();
+          int endColumn = gst.getColumnLast() - 1;
+          String image = cpdTokens == null ? null : getImage(type, text, typeOfText);
+          if (image != null) {
+            cpdTokens = cpdTokens.addToken(startLine, startColumn, endLine, endColumn, image);
+          }
+          if (typeOfText != null) {
+            highlighting = highlighting.highlight(startLine, startColumn, endLine, endColumn, typeOfText);
+          }
         }
         token = tokenStream.nextToken();
         type = token.getType();
@@ -184,43 +255,56 @@ public class GroovyHighlighterAndTokenizer {
       LOG.error("Unable to read file: " + file.getName(), e);
     }
 
-    if (!tokens.isEmpty()) {
-      boolean isNotTest = inputFile.type() != InputFile.Type.TEST;
-      NewCpdTokens cpdTokens = isNotTest ? context.newCpdTokens().onFile(inputFile) : null;
-      NewHighlighting highlighting = context.newHighlighting().onFile(inputFile);
-      for (GroovyToken groovyToken : tokens) {
-        if (isNotTest) {
-          cpdTokens = cpdTokens.addToken(groovyToken.startLine, groovyToken.startColumn, groovyToken.endLine, groovyToken.endColumn, groovyToken.value);
-        }
-        if (groovyToken.typeOfText != null) {
-          highlighting = highlighting.highlight(groovyToken.startLine, groovyToken.startColumn, groovyToken.endLine, groovyToken.endColumn, groovyToken.typeOfText);
-        }
-      }
+    if (highlighting != null) {
       highlighting.save();
-      if (isNotTest) {
-        cpdTokens.save();
-      }
+    }
+    if (cpdTokens != null) {
+      cpdTokens.save();
     }
   }
 
-  private String getImage(Token token, String text) {
-    if (token.getType() == GroovyTokenTypes.STRING_LITERAL
-      || token.getType() == GroovyTokenTypes.STRING_CTOR_START
-      || token.getType() == GroovyTokenTypes.STRING_CTOR_MIDDLE
-      || token.getType() == GroovyTokenTypes.STRING_CTOR_END) {
-      return "LITERAL";
+  @CheckForNull
+  private String getImage(int type, String text, @Nullable TypeOfText typeOfText) {
+    if (type == GroovyTokenTypes.STRING_LITERAL
+      || type == GroovyTokenTypes.STRING_CTOR_START
+      || type == GroovyTokenTypes.STRING_CTOR_MIDDLE
+      || type == GroovyTokenTypes.STRING_CTOR_END) {
+      return LITERAL_IMAGE;
+    } else if (typeOfText == TypeOfText.CONSTANT && cpdNormalizations.contains(CpdNormalization.NUMBERS)) {
+      return NUMBER_IMAGE;
+    } else if ((typeOfText == TypeOfText.COMMENT || typeOfText == TypeOfText.STRUCTURED_COMMENT)
+      && cpdNormalizations.contains(CpdNormalization.COMMENTS)) {
+      return null;
+    } else if (type == GroovyTokenTypes.IDENT && cpdNormalizations.contains(CpdNormalization.IDENTIFIERS)) {
+      return IDENTIFIER_IMAGE;
     }
     return text;
   }
 
-  private Optional<TypeOfText> typeOfText(int type, String text) {
-    TypeOfText result = null;
-    for (TypeOfTextToTokenTypes mapping : HIGHLIGHTING_MAPPING) {
-      if (Arrays.stream(mapping.tokenTypes).anyMatch(tokenType -> tokenType == type)) {
-        result = mapping.typeOfText;
-        break;
+  private static TypeOfText[] typeOfTextByTokenType() {
+    int maxTokenType = 0;
+    for (int[] tokenTypes : new int[][] {KEYWORDS, STRINGS, CONSTANTS, COMMENTS}) {
+      maxTokenType = Math.max(maxTokenType, Arrays.stream(tokenTypes).max().orElse(0));
+    }
+    TypeOfText[] typeOfTextByTokenType = new TypeOfText[maxTokenType + 1];
+    map(typeOfTextByTokenType, TypeOfText.KEYWORD, KEYWORDS);
+    map(typeOfTextByTokenType, TypeOfText.STRING, STRINGS);
+    map(typeOfTextByTokenType, TypeOfText.CONSTANT, CONSTANTS);
+    map(typeOfTextByTokenType, TypeOfText.COMMENT, COMMENTS);
+    return typeOfTextByTokenType;
+  }
+
+  private static void map(TypeOfText[] typeOfTextByTokenType, TypeOfText typeOfText, int[] tokenTypes) {
+    for (int tokenType : tokenTypes) {
+      if (typeOfTextByTokenType[tokenType] == null) {
+        typeOfTextByTokenType[tokenType] = typeOfText;
       }
     }
+  }
+
+  @CheckForNull
+  private TypeOfText typeOfText(int type, String text) {
+    TypeOfText result = type >= 0 && type < TYPE_OF_TEXT_BY_TOKEN_TYPE.length ? TYPE_OF_TEXT_BY_TOKEN_TYPE[type] : null;
 
     if (result == TypeOfText.COMMENT && text.startsWith("/**")) {
       result = TypeOfText.STRUCTURED_COMMENT;
@@ -229,39 +313,10 @@ public class GroovyHighlighterAndTokenizer {
       result = isAnnotation ? TypeOfText.ANNOTATION : null;
     }
 
-    return Optional.ofNullable(result);
+    return result;
   }
 
   private static boolean isPartOfAnnotation(int type) {
     return type == GroovyLexer.AT || type == GroovyLexer.IDENT || type == GroovyLexer.DOT;
   }
-
-  private static class GroovyToken {
-    final int startLine;
-    final int startColumn;
-    final int endLine;
-    final int endColumn;
-    final String value;
-    @Nullable
-    final TypeOfText typeOfText;
-
-    public GroovyToken(int startLine, int startColumn, int endLine, int endColumn, String value, @Nullable TypeOfText typeOfText) {
-      this.startLine = startLine;
-      this.startColumn = startColumn - 1;
-      this.endLine = endLine;
-      this.endColumn = endColumn - 1;
-      this.value = value;
-      this.typeOfText = typeOfText;
-    }
-  }
-
-  private static class TypeOfTextToTokenTypes {
-    final int[] tokenTypes;
-    final TypeOfText typeOfText;
-
-    public TypeOfTextToTokenTypes(TypeOfText typeOfText, int[] tokenTypes) {
-      this.tokenTypes = tokenTypes;
-      this.typeOfText = typeOfText;
-    }
-  }
 }
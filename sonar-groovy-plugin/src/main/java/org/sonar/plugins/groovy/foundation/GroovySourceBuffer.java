@@ -0,0 +1,150 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import java.io.BufferedReader;
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.codehaus.groovy.antlr.parser.GroovyLexer;
+
+/**
+ * Buffers used to read Groovy files before lexing them, created for a sensor run and used by a single thread. The bytes
+ * of a file are read at once in a direct buffer and decoded in a char buffer, both being kept and reused for the next
+ * file, so that reading a file only allocates when it is larger than all the previous ones. Buffers are only kept up to
+ * {@link #MAX_RETAINED_CAPACITY}: larger files are read in temporary buffers, so that one large generated file does not
+ * pin its size in memory for the rest of the run.
+ * <p>
+ * Lexers are not pooled: {@link GroovyLexer} keeps parsing state (parenthesis level, string constructor state...) which
+ * cannot be reset from outside, so a new one is created for each file, on top of the reused buffers.
+ */
+public final class GroovySourceBuffer {
+
+  public static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+
+  private ByteBuffer bytes;
+  private CharBuffer chars;
+
+  /**
+   * Reads the whole content of the file. The returned buffer is only valid until the next read.
+   */
+  public CharBuffer read(File file, Charset charset) throws IOException {
+    ByteBuffer content;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("File is too large to be read: " + file);
+      }
+      content = byteBuffer((int) size);
+      content.limit((int) size);
+      while (content.hasRemaining() && channel.read(content) >= 0) {
+        // read until the buffer is full or the end of the file is reached
+      }
+      content.flip();
+    }
+    return decode(content, charset);
+  }
+
+  /**
+   * Lexer including whitespaces over the content of the file. It reads from this buffer, and must be consumed before
+   * the next read.
+   */
+  public GroovyLexer lexer(File file, Charset charset) throws IOException {
+    GroovyLexer lexer = new GroovyLexer(reader(read(file, charset)));
+    lexer.setWhitespaceIncluded(true);
+    return lexer;
+  }
+
+  /**
+   * Lines of the given content, split the same way as {@link BufferedReader#readLine()} does.
+   */
+  public static List<String> lines(CharBuffer content) throws IOException {
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(reader(content))) {
+      String line = reader.readLine();
+      while (line != null) {
+        lines.add(line);
+        line = reader.readLine();
+      }
+    }
+    return lines;
+  }
+
+  public static Reader reader(CharBuffer content) {
+    return new CharArrayReader(content.array(), content.arrayOffset() + content.position(), content.remaining());
+  }
+
+  private ByteBuffer byteBuffer(int size) {
+    if (size > MAX_RETAINED_CAPACITY) {
+      return ByteBuffer.allocate(size);
+    }
+    if (bytes == null || bytes.capacity() < size) {
+      bytes = ByteBuffer.allocateDirect(retainedCapacity(bytes == null ? 0 : bytes.capacity(), size));
+    }
+    bytes.clear();
+    return bytes;
+  }
+
+  private CharBuffer charBuffer(int size) {
+    if (size > MAX_RETAINED_CAPACITY) {
+      return CharBuffer.allocate(size);
+    }
+    if (chars == null || chars.capacity() < size) {
+      chars = CharBuffer.allocate(retainedCapacity(chars == null ? 0 : chars.capacity(), size));
+    }
+    chars.clear();
+    return chars;
+  }
+
+  private static int retainedCapacity(int capacity, int size) {
+    return Math.max(size, Math.min(MAX_RETAINED_CAPACITY, Math.max(INITIAL_CAPACITY, 2 * capacity)));
+  }
+
+  private CharBuffer decode(ByteBuffer content, Charset charset) throws IOException {
+    CharsetDecoder decoder = charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    int maxChars = (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(content.remaining() * (double) decoder.maxCharsPerByte()));
+    CharBuffer decoded = charBuffer(maxChars);
+    CoderResult result = decoder.decode(content, decoded, true);
+    if (!result.isUnderflow()) {
+      result.throwException();
+    }
+    result = decoder.flush(decoded);
+    if (!result.isUnderflow()) {
+      result.throwException();
+    }
+    decoded.flip();
+    return decoded;
+  }
+}
@@ -20,19 +20,23 @@
 package org.sonar.plugins.groovy.gmetrics;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import org.apache.tools.ant.Project;
-import org.apache.tools.ant.types.FileSet;
-import org.gmetrics.GMetricsRunner;
-import org.gmetrics.analyzer.SourceAnalyzer;
-import org.gmetrics.ant.AntFileSetSourceAnalyzer;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.gmetrics.metric.Metric;
+import org.gmetrics.metric.PostProcessingMetric;
 import org.gmetrics.metric.coupling.AfferentCouplingMetric;
 import org.gmetrics.metric.coupling.EfferentCouplingMetric;
 import org.gmetrics.metric.cyclomatic.CyclomaticComplexityMetric;
@@ -41,24 +45,28 @@ import org.gmetrics.metric.linecount.MethodLineCountMetric;
 import org.gmetrics.resultsnode.ClassResultsNode;
 import org.gmetrics.resultsnode.PackageResultsNode;
 import org.gmetrics.resultsnode.ResultsNode;
+import org.gmetrics.source.SourceCode;
+import org.gmetrics.source.SourceFile;
+import org.gmetrics.util.PathUtil;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputDir;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.groovy.utils.FlightRecorder;
+import org.sonar.plugins.groovy.utils.FlightRecorder.Span;
+import org.sonar.plugins.groovy.utils.TimeLimitedWorker;
 
 public class GMetricsSourceAnalyzer {
 
-  private static final List<org.gmetrics.metric.Metric> GMETRICS = Arrays.asList(
-    new CyclomaticComplexityMetric(),
-    new ClassLineCountMetric(),
-    new MethodLineCountMetric(),
-    new EfferentCouplingMetric(),
-    new AfferentCouplingMetric());
+  private static final Logger LOG = Loggers.get(GMetricsSourceAnalyzer.class);
 
   private final Map<InputFile, List<ClassResultsNode>> resultsByFile = new HashMap<>();
   private final Map<InputDir, PackageResultsNode> resultsByPackage = new HashMap<>();
 
   private final Map<String, InputFile> pathToInputFile = new HashMap<>();
-  private final Set<File> files = new HashSet<>();
+  private final List<InputFile> sourceFiles;
+  private final List<InputFile> skippedFiles = new ArrayList<>();
 
   private final FileSystem fileSystem;
   private final File fileSystemBaseDir;
@@ -66,10 +74,10 @@ public class GMetricsSourceAnalyzer {
   public GMetricsSourceAnalyzer(FileSystem fileSystem, List<InputFile> sourceFiles) {
     this.fileSystem = fileSystem;
     this.fileSystemBaseDir = fileSystem.baseDir();
+    this.sourceFiles = sourceFiles;
 
     for (InputFile inputFile : sourceFiles) {
       pathToInputFile.put(inputFile.absolutePath(), inputFile);
-      files.add(inputFile.file());
     }
   }
 
@@ -81,25 +89,98 @@ public class GMetricsSourceAnalyzer {
     return resultsByPackage;
   }
 
-  public void analyze() {
-    FileSet fileSet = new FileSet();
-    fileSet.setDir(fileSystemBaseDir);
-    fileSet.add((basedir, filename, file) -> files.contains(file));
+  public List<InputFile> getSkippedFiles() {
+    return skippedFiles;
+  }
 
-    List<FileSet> fileSets = new ArrayList<>();
-    fileSets.add(fileSet);
+  public void analyze() {
+    analyze(0L);
+  }
 
-    Project project = new Project();
-    project.setBaseDir(fileSystemBaseDir);
+  /**
+   * Classes are measured file by file, each file within the time limit: a file exceeding it is skipped, getting no
+   * complexity measures and being left out of the coupling between packages. Packages are measured once all the files
+   * are, on the calling thread, so that an abandoned analysis never shares their results.
+   *
+   * @param fileTimeoutMillis time after which the analysis of a file is abandoned, no limit when not positive
+   */
+  public void analyze(long fileTimeoutMillis) {
+    // coupling metrics accumulate the references between packages, they are not shared between analyses
+    List<Metric> metrics = Arrays.asList(
+      new CyclomaticComplexityMetric(),
+      new ClassLineCountMetric(),
+      new MethodLineCountMetric(),
+      new EfferentCouplingMetric(),
+      new AfferentCouplingMetric());
+    MeasuredPackages packages = new MeasuredPackages();
+    try (Span span = FlightRecorder.gMetricsAnalysis(sourceFiles.size());
+      TimeLimitedWorker worker = new TimeLimitedWorker("GMetrics file analysis")) {
+      for (InputFile inputFile : sourceFiles) {
+        String path = relativePath(inputFile);
+        if (path != null) {
+          MeasuredFile measuredFile = callWithinTimeLimit(inputFile, () -> measure(path, metrics), worker, fileTimeoutMillis);
+          if (measuredFile != null) {
+            packages.add(measuredFile);
+          }
+        }
+      }
+      processResults(packages.measure(metrics), pathToInputFile);
+    }
+    if (!skippedFiles.isEmpty()) {
+      LOG.warn("GMetrics analysis skipped {} file(s) exceeding the time limit of {} ms, or left over while abandoned analyses were still running: {}",
+        skippedFiles.size(), fileTimeoutMillis, skippedFiles);
+    }
+  }
 
-    SourceAnalyzer analyzer = new AntFileSetSourceAnalyzer(project, fileSets);
+  /**
+   * Path relative to the base directory, as GMetrics only analyses the files under it.
+   */
+  @CheckForNull
+  private String relativePath(InputFile inputFile) {
+    Path baseDir = fileSystemBaseDir.toPath().toAbsolutePath().normalize();
+    Path file = inputFile.file().toPath().toAbsolutePath().normalize();
+    return file.startsWith(baseDir) ? baseDir.relativize(file).toString() : null;
+  }
 
-    GMetricsRunner runner = new GMetricsRunner();
-    runner.setMetricSet(() -> GMETRICS);
-    runner.setSourceAnalyzer(analyzer);
-    ResultsNode resultNode = runner.execute();
+  @CheckForNull
+  private <T> T callWithinTimeLimit(InputFile inputFile, Supplier<T> analysis, TimeLimitedWorker worker, long fileTimeoutMillis) {
+    if (fileTimeoutMillis <= 0) {
+      return analysis.get();
+    }
+    try {
+      return worker.call(analysis::get, fileTimeoutMillis);
+    } catch (TimeoutException e) {
+      LOG.warn("GMetrics analysis of {} abandoned after {} ms", inputFile, fileTimeoutMillis);
+      skippedFiles.add(inputFile);
+      return null;
+    } catch (RejectedExecutionException e) {
+      LOG.warn("GMetrics analysis of {} skipped: {}", inputFile, e.getMessage());
+      skippedFiles.add(inputFile);
+      return null;
+    }
+  }
 
-    processResults(resultNode, pathToInputFile);
+  /**
+   * Applies the metrics to each class of the file, as GMetrics does. Classes are measured independently of each other,
+   * the results of an abandoned file are never shared.
+   */
+  private MeasuredFile measure(String path, List<Metric> metrics) {
+    MeasuredFile measuredFile = new MeasuredFile(path);
+    SourceCode sourceCode = new SourceFile(new File(fileSystemBaseDir, path));
+    ModuleNode ast = sourceCode.getAst();
+    if (ast != null) {
+      for (ClassNode classNode : ast.getClasses()) {
+        ClassResultsNode classResults = new ClassResultsNode(classNode.getName(), sourceCode.getName(), sourceCode.getPath());
+        for (Metric metric : metrics) {
+          classResults.addClassMetricResult(metric.applyToClass(classNode, sourceCode));
+        }
+        if (measuredFile.packageName == null) {
+          measuredFile.packageName = classNode.getPackageName();
+        }
+        measuredFile.resultsByClass.put(classNode.getName(), classResults);
+      }
+    }
+    return measuredFile;
   }
 
   private void processResults(ResultsNode resultNode, Map<String, InputFile> pathToInputFile) {
@@ -133,4 +214,67 @@ public class GMetricsSourceAnalyzer {
     }
   }
 
+  private static class MeasuredFile {
+
+    private final String path;
+    private final Map<String, ClassResultsNode> resultsByClass = new LinkedHashMap<>();
+    private String packageName;
+
+    MeasuredFile(String path) {
+      this.path = path;
+    }
+  }
+
+  /**
+   * Tree of packages of the measured files, built as GMetrics builds it from the paths of the files. Packages are
+   * measured from their children, then post-processing metrics, such as coupling, complete their results.
+   */
+  private static class MeasuredPackages {
+
+    private final PackageResultsNode root = new PackageResultsNode(null, "", null);
+    private final Map<String, PackageResultsNode> packagesByPath = new HashMap<>();
+
+    void add(MeasuredFile measuredFile) {
+      if (!measuredFile.resultsByClass.isEmpty()) {
+        String packageName = measuredFile.packageName == null ? "" : measuredFile.packageName;
+        PackageResultsNode parent = findOrAddPackage(PathUtil.getParent(measuredFile.path), packageName);
+        measuredFile.resultsByClass.forEach(parent::addChildIfNotEmpty);
+      }
+    }
+
+    private PackageResultsNode findOrAddPackage(@Nullable String path, String packageName) {
+      if (path == null) {
+        return root;
+      }
+      PackageResultsNode node = packagesByPath.get(path);
+      if (node == null) {
+        String parentPath = PathUtil.getParent(path);
+        String name = PathUtil.getName(path);
+        node = new PackageResultsNode(name, packageName, path);
+        findOrAddPackage(parentPath, "").addChild(name, node);
+        packagesByPath.put(path, node);
+      }
+      return node;
+    }
+
+    ResultsNode measure(List<Metric> metrics) {
+      measurePackages(root, metrics);
+      for (Metric metric : metrics) {
+        if (metric instanceof PostProcessingMetric) {
+          ((PostProcessingMetric) metric).afterAllSourceCodeProcessed();
+        }
+      }
+      return root;
+    }
+
+    private static void measurePackages(PackageResultsNode node, List<Metric> metrics) {
+      for (ResultsNode child : node.getChildren().values()) {
+        if (child instanceof PackageResultsNode) {
+          measurePackages((PackageResultsNode) child, metrics);
+        }
+      }
+      metrics.forEach(node::applyMetric);
+    }
+  }
+
 }
@@ -28,18 +28,23 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
+import org.sonar.plugins.groovy.utils.PerformanceReport.Phase;
 
 public class JaCoCoItSensor implements Sensor {
   private final JaCoCoConfiguration configuration;
   private final GroovyFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final Settings settings;
+  private final PerformanceReport performanceReport;
 
-  public JaCoCoItSensor(JaCoCoConfiguration configuration, GroovyFileSystem fileSystem, PathResolver pathResolver, Settings settings) {
+  public JaCoCoItSensor(JaCoCoConfiguration configuration, GroovyFileSystem fileSystem, PathResolver pathResolver, Settings settings,
+    PerformanceReport performanceReport) {
     this.configuration = configuration;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.settings = settings;
+    this.performanceReport = performanceReport;
   }
 
   @Override
@@ -52,7 +57,10 @@ public class JaCoCoItSensor implements Sensor {
   @Override
   public void execute(SensorContext context) {
     if (shouldExecuteOnProject()) {
-      new ITAnalyzer().analyse(context);
+      try (Phase phase = performanceReport.start(context, "Groovy JaCoCo IT", "coverage import")) {
+        phase.addFile(pathResolver.relativeFile(fileSystem.baseDir(), configuration.getItReportPath()));
+        new ITAnalyzer().analyse(context);
+      }
     }
   }
 
@@ -28,6 +28,8 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
+import org.sonar.plugins.groovy.utils.PerformanceReport.Phase;
 
 public class JaCoCoOverallSensor implements Sensor {
 
@@ -37,12 +39,15 @@ public class JaCoCoOverallSensor implements Sensor {
   private final GroovyFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final Settings settings;
+  private final PerformanceReport performanceReport;
 
-  public JaCoCoOverallSensor(JaCoCoConfiguration configuration, GroovyFileSystem fileSystem, PathResolver pathResolver, Settings settings) {
+  public JaCoCoOverallSensor(JaCoCoConfiguration configuration, GroovyFileSystem fileSystem, PathResolver pathResolver, Settings settings,
+    PerformanceReport performanceReport) {
     this.configuration = configuration;
     this.pathResolver = pathResolver;
     this.fileSystem = fileSystem;
     this.settings = settings;
+    this.performanceReport = performanceReport;
   }
 
   @Override
@@ -57,10 +62,14 @@ public class JaCoCoOverallSensor implements Sensor {
     File reportUTs = pathResolver.relativeFile(fileSystem.baseDir(), configuration.getReportPath());
     File reportITs = pathResolver.relativeFile(fileSystem.baseDir(), configuration.getItReportPath());
     if (shouldExecuteOnProject()) {
-      File reportOverall = new File(context.fileSystem().workDir(), JACOCO_OVERALL);
-      reportOverall.getParentFile().mkdirs();
-      JaCoCoReportMerger.mergeReports(reportOverall, reportUTs, reportITs);
-      new OverallAnalyzer(reportOverall).analyse(context);
+      try (Phase phase = performanceReport.start(context, "Groovy JaCoCo Overall", "coverage import")) {
+        phase.addFile(reportUTs);
+        phase.addFile(reportITs);
+        File reportOverall = new File(context.fileSystem().workDir(), JACOCO_OVERALL);
+        reportOverall.getParentFile().mkdirs();
+        JaCoCoReportMerger.mergeReports(reportOverall, reportUTs, reportITs);
+        new OverallAnalyzer(reportOverall).analyse(context);
+      }
     }
   }
 
@@ -19,7 +19,6 @@
  */
 package org.sonar.plugins.groovy.jacoco;
 
-import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -34,6 +33,9 @@ import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.ExecutionDataWriter;
 import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
+import org.sonar.plugins.groovy.utils.CompressedInput;
+import org.sonar.plugins.groovy.utils.FlightRecorder;
+import org.sonar.plugins.groovy.utils.FlightRecorder.Span;
 
 public class JaCoCoReportReader {
 
@@ -59,7 +61,8 @@ public class JaCoCoReportReader {
     }
 
     JaCoCoExtensions.logger().info("Analysing {}", jacocoExecutionData);
-    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(jacocoExecutionData))) {
+    try (Span span = FlightRecorder.reportParsing(jacocoExecutionData);
+      InputStream inputStream = CompressedInput.open(jacocoExecutionData.toPath())) {
       if (useCurrentBinaryFormat) {
         ExecutionDataReader reader = new ExecutionDataReader(inputStream);
         reader.setSessionInfoVisitor(sessionInfoStore);
@@ -81,7 +84,7 @@ public class JaCoCoReportReader {
     if (jacocoExecutionData == null) {
       return true;
     }
-    try (DataInputStream dis = new DataInputStream(new FileInputStream(jacocoExecutionData))) {
+    try (DataInputStream dis = new DataInputStream(CompressedInput.open(jacocoExecutionData.toPath()))) {
       byte firstByte = dis.readByte();
       if (firstByte != ExecutionDataWriter.BLOCK_HEADER || dis.readChar() != ExecutionDataWriter.MAGIC_NUMBER) {
         throw new IllegalStateException();
@@ -124,7 +127,8 @@ public class JaCoCoReportReader {
    * Caller must guarantee that {@code classFile} is actually class file.
    */
   private static void analyzeClassFile(org.jacoco.previous.core.analysis.Analyzer analyzer, File classFile) {
-    try (InputStream inputStream = new FileInputStream(classFile)) {
+    try (Span span = FlightRecorder.coverageClassAnalysis(classFile);
+      InputStream inputStream = new FileInputStream(classFile)) {
       analyzer.analyzeClass(inputStream, classFile.getPath());
     } catch (IOException e) {
       // (Godin): in fact JaCoCo includes name into exception
@@ -133,7 +137,8 @@ public class JaCoCoReportReader {
   }
 
   private static void analyzeClassFile(Analyzer analyzer, File classFile) {
-    try (InputStream inputStream = new FileInputStream(classFile)) {
+    try (Span span = FlightRecorder.coverageClassAnalysis(classFile);
+      InputStream inputStream = new FileInputStream(classFile)) {
       analyzer.analyzeClass(inputStream, classFile.getPath());
     } catch (IOException e) {
       // (Godin): in fact JaCoCo includes name into exception
@@ -28,6 +28,8 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
+import org.sonar.plugins.groovy.utils.PerformanceReport.Phase;
 
 public class JaCoCoSensor implements Sensor {
 
@@ -35,12 +37,15 @@ public class JaCoCoSensor implements Sensor {
   private final GroovyFileSystem fileSystem;
   private final PathResolver pathResolver;
   private final Settings settings;
+  private final PerformanceReport performanceReport;
 
-  public JaCoCoSensor(JaCoCoConfiguration configuration, GroovyFileSystem fileSystem, PathResolver pathResolver, Settings settings) {
+  public JaCoCoSensor(JaCoCoConfiguration configuration, GroovyFileSystem fileSystem, PathResolver pathResolver, Settings settings,
+    PerformanceReport performanceReport) {
     this.configuration = configuration;
     this.fileSystem = fileSystem;
     this.pathResolver = pathResolver;
     this.settings = settings;
+    this.performanceReport = performanceReport;
   }
 
   @Override
@@ -53,7 +58,10 @@ public class JaCoCoSensor implements Sensor {
   @Override
   public void execute(SensorContext context) {
     if (shouldExecuteOnProject()) {
-      new UnitTestsAnalyzer().analyse(context);
+      try (Phase phase = performanceReport.start(context, "Groovy JaCoCo", "coverage import")) {
+        phase.addFile(pathResolver.relativeFile(fileSystem.baseDir(), configuration.getReportPath()));
+        new UnitTestsAnalyzer().analyse(context);
+      }
     }
   }
 
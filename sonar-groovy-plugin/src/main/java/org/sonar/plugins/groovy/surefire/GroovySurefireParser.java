@@ -20,19 +20,40 @@
 package org.sonar.plugins.groovy.surefire;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import javax.annotation.CheckForNull;
 import javax.xml.stream.XMLStreamException;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.BatchSide;
-import org.sonar.api.batch.fs.FilePredicate;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.test.MutableTestPlan;
@@ -41,7 +62,9 @@ import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.ParsingUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.groovy.GroovyPlugin;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.surefire.api.SurefireUtils;
 import org.sonar.plugins.groovy.surefire.data.SurefireStaxHandler;
 import org.sonar.plugins.groovy.surefire.data.UnitTestClassReport;
 import org.sonar.plugins.groovy.surefire.data.UnitTestIndex;
@@ -52,9 +75,12 @@ import org.sonar.plugins.groovy.utils.StaxParser;
 public class GroovySurefireParser {
 
   private static final Logger LOGGER = Loggers.get(GroovySurefireParser.class);
+  private static final int PARSER_THREADS = Runtime.getRuntime().availableProcessors();
+
   private final ResourcePerspectives perspectives;
   private final Groovy groovy;
   private final FileSystem fs;
+  private Map<String, InputFile> testFilesByClassname;
 
   public GroovySurefireParser(Groovy groovy, ResourcePerspectives perspectives, FileSystem fs) {
     this.groovy = groovy;
@@ -63,40 +89,156 @@ public class GroovySurefireParser {
   }
 
   public void collect(SensorContext context, File reportsDir) {
-    File[] xmlFiles = getReports(reportsDir);
-    if (xmlFiles.length > 0) {
-      parseFiles(context, xmlFiles);
+    collect(context, Collections.singletonList(reportsDir));
+  }
+
+  /**
+   * Reports found in all the given directories and their subdirectories are combined into a single index.
+   */
+  public void collect(SensorContext context, List<File> reportsDirs) {
+    List<File> xmlFiles = new ArrayList<>();
+    for (File reportsDir : reportsDirs) {
+      xmlFiles.addAll(getReports(reportsDir));
+    }
+    List<File> reports = removeDuplicates(xmlFiles);
+    if (!reports.isEmpty()) {
+      try {
+        parseFiles(context, reports);
+      } finally {
+        testFilesByClassname = null;
+      }
     }
   }
 
-  private static File[] getReports(File dir) {
+  private static List<File> getReports(File dir) {
     if (dir == null) {
-      return new File[0];
+      return Collections.emptyList();
     } else if (!dir.isDirectory()) {
       LOGGER.warn("Reports path not found: " + dir.getAbsolutePath());
-      return new File[0];
+      return Collections.emptyList();
     }
-    File[] unitTestResultFiles = findXMLFilesStartingWith(dir, "TEST-");
-    if (unitTestResultFiles.length == 0) {
-      // maybe there's only a test suite result file
-      unitTestResultFiles = findXMLFilesStartingWith(dir, "TESTS-");
+    ReportsFinder finder = new ReportsFinder(dir.toPath());
+    try {
+      Files.walkFileTree(dir.toPath(), finder);
+    } catch (IOException e) {
+      LOGGER.warn("Fail to list Surefire reports in: " + dir, e);
     }
-    return unitTestResultFiles;
+    return finder.reports;
   }
 
-  private static File[] findXMLFilesStartingWith(File dir, final String fileNameStart) {
-    return dir.listFiles((folder, name) -> name.startsWith(fileNameStart) && name.endsWith(".xml"));
+  private static List<File> filterStartingWith(List<File> files, String fileNameStart) {
+    return files.stream().filter(file -> file.getName().startsWith(fileNameStart)).collect(Collectors.toList());
   }
 
-  private void parseFiles(SensorContext context, File[] reports) {
-    UnitTestIndex index = new UnitTestIndex();
-    parseFiles(reports, index);
-    sanitize(index);
+  /**
+   * Overlapping report paths, or builds copying their reports around, lead to the same suite being found
+   * several times. Files are only checksummed when another report has the same name and size, and only
+   * dropped when their content is identical to the one of a kept report.
+   */
+  private static List<File> removeDuplicates(List<File> reports) {
+    Map<String, List<File>> candidates = new LinkedHashMap<>();
+    for (File report : reports) {
+      candidates.computeIfAbsent(report.getName() + ":" + report.length(), k -> new ArrayList<>()).add(report);
+    }
+    List<File> result = new ArrayList<>(reports.size());
+    for (List<File> sameNameAndSize : candidates.values()) {
+      if (sameNameAndSize.size() == 1) {
+        result.add(sameNameAndSize.get(0));
+      } else {
+        Map<Long, List<File>> keptByChecksum = new HashMap<>();
+        for (File report : sameNameAndSize) {
+          List<File> sameChecksum = keptByChecksum.computeIfAbsent(checksum(report), k -> new ArrayList<>());
+          if (sameChecksum.stream().anyMatch(kept -> contentEquals(kept, report))) {
+            LOGGER.debug("Ignoring duplicated Surefire report: {}", report);
+          } else {
+            sameChecksum.add(report);
+            result.add(report);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean contentEquals(File file, File other) {
+    try {
+      return FileUtils.contentEquals(file, other);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read the Surefire report: " + other, e);
+    }
+  }
+
+  private static long checksum(File file) {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[8192];
+    try (InputStream input = Files.newInputStream(file.toPath())) {
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        crc.update(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read the Surefire report: " + file, e);
+    }
+    return crc.getValue();
+  }
+
+  private void parseFiles(SensorContext context, List<File> reports) {
+    UnitTestIndex index = parseFiles(reports, getStackTraceMaxLength(context.settings()));
     save(index, context);
   }
 
-  private static void parseFiles(File[] reports, UnitTestIndex index) {
-    StaxParser parser = new StaxParser(new SurefireStaxHandler(index));
+  private static int getStackTraceMaxLength(Settings settings) {
+    if (settings.hasKey(GroovyPlugin.SUREFIRE_STACK_TRACE_MAX_LENGTH)) {
+      return Math.max(0, settings.getInt(GroovyPlugin.SUREFIRE_STACK_TRACE_MAX_LENGTH));
+    }
+    return SurefireStaxHandler.UNLIMITED_STACK_TRACE_LENGTH;
+  }
+
+  /**
+   * Sorted reports are split into contiguous partitions parsed concurrently, then merged in order.
+   */
+  private static UnitTestIndex parseFiles(List<File> reports, int stackTraceMaxLength) {
+    List<File> sortedReports = new ArrayList<>(reports);
+    sortedReports.sort(null);
+    int threads = Math.min(PARSER_THREADS, sortedReports.size());
+    if (threads <= 1) {
+      return parsePartition(sortedReports, stackTraceMaxLength);
+    }
+    int partitionSize = (sortedReports.size() + threads - 1) / threads;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<UnitTestIndex>> partitions = new ArrayList<>(threads);
+      for (int start = 0; start < sortedReports.size(); start += partitionSize) {
+        List<File> partition = sortedReports.subList(start, Math.min(start + partitionSize, sortedReports.size()));
+        partitions.add(executor.submit(() -> parsePartition(partition, stackTraceMaxLength)));
+      }
+      UnitTestIndex index = new UnitTestIndex();
+      for (Future<UnitTestIndex> partition : partitions) {
+        index.merge(getPartition(partition));
+      }
+      return index;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static UnitTestIndex getPartition(Future<UnitTestIndex> partition) {
+    try {
+      return partition.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing Surefire reports", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to parse Surefire reports", e.getCause());
+    }
+  }
+
+  private static UnitTestIndex parsePartition(List<File> reports, int stackTraceMaxLength) {
+    UnitTestIndex index = new UnitTestIndex();
+    StaxParser parser = new StaxParser(new SurefireStaxHandler(index, stackTraceMaxLength));
     for (File report : reports) {
       try {
         parser.parse(report);
@@ -104,16 +246,7 @@ public class GroovySurefireParser {
         throw MessageException.of("Fail to parse the Surefire report: " + report, e);
       }
     }
-  }
-
-  private static void sanitize(UnitTestIndex index) {
-    for (String classname : index.getClassnames()) {
-      if (StringUtils.contains(classname, "$")) {
-        // Surefire reports classes whereas sonar supports files
-        String parentClassName = StringUtils.substringBefore(classname, "$");
-        index.merge(classname, parentClassName);
-      }
-    }
+    return index;
   }
 
   private void save(UnitTestIndex index, SensorContext context) {
@@ -164,28 +297,110 @@ public class GroovySurefireParser {
     }
   }
 
+  @CheckForNull
   protected InputFile getUnitTestInputFile(String classKey) {
-    String fileName = StringUtils.replace(classKey, ".", "/");
+    if (testFilesByClassname == null) {
+      testFilesByClassname = indexTestFilesByClassname();
+    }
+    return testFilesByClassname.get(classKey);
+  }
+
+  /**
+   * Each test file is indexed under every class name its relative path ends with:
+   * "src/test/org/Foo.groovy" is indexed as "src.test.org.Foo", "test.org.Foo", "org.Foo" and "Foo".
+   */
+  private Map<String, InputFile> indexTestFilesByClassname() {
+    String[] suffixes = groovy.getFileSuffixes();
     FilePredicates p = fs.predicates();
-    FilePredicate fileNamePredicates = getFileNamePredicateFromSuffixes(p, fileName, groovy.getFileSuffixes());
-    FilePredicate searchPredicate = p.and(p.and(p.hasLanguage(Groovy.KEY), p.hasType(InputFile.Type.TEST)), fileNamePredicates);
-    if (fs.hasFiles(searchPredicate)) {
-      return fs.inputFiles(searchPredicate).iterator().next();
-    } else {
-      return null;
+    Map<String, InputFile> index = new HashMap<>();
+    for (InputFile inputFile : fs.inputFiles(p.and(p.hasLanguage(Groovy.KEY), p.hasType(InputFile.Type.TEST)))) {
+      String relativePath = inputFile.relativePath();
+      for (String suffix : suffixes) {
+        if (relativePath.endsWith(suffix)) {
+          indexClassnames(index, relativePath.substring(0, relativePath.length() - suffix.length()), inputFile);
+        }
+      }
     }
+    return index;
   }
 
-  private static FilePredicate getFileNamePredicateFromSuffixes(FilePredicates p, String fileName, String[] suffixes) {
-    List<FilePredicate> fileNamePredicates = new ArrayList<>(suffixes.length);
-    for (String suffix : suffixes) {
-      fileNamePredicates.add(p.matchesPathPattern("**/" + fileName + suffix));
+  private static void indexClassnames(Map<String, InputFile> index, String pathWithoutSuffix, InputFile inputFile) {
+    String classname = StringUtils.replaceChars(pathWithoutSuffix, '/', '.');
+    index.putIfAbsent(classname, inputFile);
+    int separator = pathWithoutSuffix.indexOf('/');
+    while (separator >= 0) {
+      index.putIfAbsent(classname.substring(separator + 1), inputFile);
+      separator = pathWithoutSuffix.indexOf('/', separator + 1);
     }
-    return p.or(fileNamePredicates);
   }
 
   private static <T extends Serializable> void saveMeasure(SensorContext context, InputFile inputFile, Metric<T> metric, T value) {
     context.<T>newMeasure().forMetric(metric).on(inputFile).withValue(value).save();
   }
 
+  /**
+   * Lists the XML reports, possibly gzipped, of a directory tree. In each directory, the reports of the test classes
+   * are preferred to the ones of the test suites, which are only used when a directory holds no other report.
+   * A gzipped report is ignored when its uncompressed form lies next to it. Symbolic links are not followed, and
+   * hidden directories and <code>node_modules</code> are not visited.
+   */
+  private static class ReportsFinder extends SimpleFileVisitor<Path> {
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final Path root;
+    private final Deque<List<File>> reportsByDirectory = new ArrayDeque<>();
+    private final List<File> reports = new ArrayList<>();
+
+    ReportsFinder(Path root) {
+      this.root = root;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+      if (!dir.equals(root) && SurefireUtils.isSkippedDirectory(dir)) {
+        return FileVisitResult.SKIP_SUBTREE;
+      }
+      reportsByDirectory.push(new ArrayList<>());
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      if (attrs.isRegularFile() && isReport(file.getFileName().toString())) {
+        reportsByDirectory.peek().add(file.toFile());
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) {
+      LOGGER.warn("Fail to list Surefire reports in: " + file, e);
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+      List<File> xmlFiles = reportsByDirectory.pop();
+      List<File> unitTestResultFiles = filterStartingWith(xmlFiles, "TEST-");
+      if (unitTestResultFiles.isEmpty()) {
+        // maybe there's only a test suite result file
+        unitTestResultFiles = filterStartingWith(xmlFiles, "TESTS-");
+      }
+      reports.addAll(withoutCompressedCopies(unitTestResultFiles));
+      return FileVisitResult.CONTINUE;
+    }
+
+    private static List<File> withoutCompressedCopies(List<File> files) {
+      Set<String> names = files.stream().map(File::getName).collect(Collectors.toSet());
+      return files.stream()
+        .filter(file -> !file.getName().endsWith(GZIP_SUFFIX) || !names.contains(StringUtils.removeEnd(file.getName(), GZIP_SUFFIX)))
+        .collect(Collectors.toList());
+    }
+
+    private static boolean isReport(String name) {
+      return name.startsWith("TEST") && (name.endsWith(".xml") || name.endsWith(".xml" + GZIP_SUFFIX));
+    }
+  }
+
 }
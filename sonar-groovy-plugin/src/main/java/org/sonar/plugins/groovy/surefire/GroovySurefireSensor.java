@@ -30,8 +30,10 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.surefire.api.SurefireUtils;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
 
 import java.io.File;
+import java.util.List;
 
 @DependedUpon("surefire-java")
 public class GroovySurefireSensor implements Sensor {
@@ -42,12 +44,15 @@ public class GroovySurefireSensor implements Sensor {
   private final Settings settings;
   private final FileSystem fs;
   private final PathResolver pathResolver;
+  private final PerformanceReport performanceReport;
 
-  public GroovySurefireSensor(GroovySurefireParser groovySurefireParser, Settings settings, FileSystem fs, PathResolver pathResolver) {
+  public GroovySurefireSensor(GroovySurefireParser groovySurefireParser, Settings settings, FileSystem fs, PathResolver pathResolver,
+    PerformanceReport performanceReport) {
     this.groovySurefireParser = groovySurefireParser;
     this.settings = settings;
     this.fs = fs;
     this.pathResolver = pathResolver;
+    this.performanceReport = performanceReport;
   }
 
   @Override
@@ -57,13 +62,15 @@ public class GroovySurefireSensor implements Sensor {
 
   @Override
   public void execute(SensorContext context) {
-    File dir = SurefireUtils.getReportsDirectory(settings, fs, pathResolver);
-    collect(context, dir);
+    List<File> dirs = SurefireUtils.getReportsDirectories(settings, fs, pathResolver);
+    try (PerformanceReport.Phase phase = performanceReport.start(context, toString(), "report import")) {
+      collect(context, dirs);
+    }
   }
 
-  protected void collect(SensorContext context, File reportsDir) {
-    LOGGER.info("parsing {}", reportsDir);
-    groovySurefireParser.collect(context, reportsDir);
+  protected void collect(SensorContext context, List<File> reportsDirs) {
+    LOGGER.info("parsing {}", reportsDirs);
+    groovySurefireParser.collect(context, reportsDirs);
   }
 
   @Override
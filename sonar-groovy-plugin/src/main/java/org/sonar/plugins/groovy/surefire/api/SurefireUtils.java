@@ -19,6 +19,8 @@
  */
 package org.sonar.plugins.groovy.surefire.api;
 
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
@@ -28,34 +30,152 @@ import org.sonar.api.utils.log.Loggers;
 import javax.annotation.CheckForNull;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
 public final class SurefireUtils {
 
   private static final Logger LOGGER = Loggers.get(SurefireUtils.class);
   public static final String SUREFIRE_REPORTS_PATH_PROPERTY = "sonar.junit.reportsPath";
+  private static final String GLOB_CHARACTERS = "*?[{";
+  private static final String NODE_MODULES = "node_modules";
 
   private SurefireUtils() {
   }
 
-  public static File getReportsDirectory(Settings settings, FileSystem fs, PathResolver pathResolver) {
-    File dir = getReportsDirectoryFromProperty(settings, fs, pathResolver);
-    if (dir == null) {
-      dir = new File(fs.baseDir(), "target/surefire-reports");
+  /**
+   * The reports path property may hold several comma-separated directories, as well as glob patterns
+   * which are expanded to all the matching directories.
+   */
+  public static List<File> getReportsDirectories(Settings settings, FileSystem fs, PathResolver pathResolver) {
+    List<File> dirs = new ArrayList<>();
+    String property = settings.getString(SUREFIRE_REPORTS_PATH_PROPERTY);
+    if (property != null) {
+      for (String path : StringUtils.split(property, ',')) {
+        String trimmedPath = path.trim();
+        if (StringUtils.containsAny(trimmedPath, GLOB_CHARACTERS)) {
+          dirs.addAll(getReportsDirectoriesFromPattern(fs.baseDir(), trimmedPath));
+        } else {
+          File dir = getReportsDirectoryFromPath(fs, pathResolver, trimmedPath);
+          if (dir != null) {
+            dirs.add(dir);
+          }
+        }
+      }
+    }
+    if (dirs.isEmpty()) {
+      dirs.add(new File(fs.baseDir(), "target/surefire-reports"));
     }
-    return dir;
+    return dirs;
   }
 
   @CheckForNull
-  private static File getReportsDirectoryFromProperty(Settings settings, FileSystem fs, PathResolver pathResolver) {
-    String path = settings.getString(SUREFIRE_REPORTS_PATH_PROPERTY);
-    if (path != null) {
-      try {
-        return pathResolver.relativeFile(fs.baseDir(), path);
-      } catch (Exception e) {
-        LOGGER.info("Surefire report path: " + fs.baseDir() + "/" + path + " not found.", e);
-      }
+  private static File getReportsDirectoryFromPath(FileSystem fs, PathResolver pathResolver, String path) {
+    try {
+      return pathResolver.relativeFile(fs.baseDir(), path);
+    } catch (Exception e) {
+      LOGGER.info("Surefire report path: " + fs.baseDir() + "/" + path + " not found.", e);
     }
     return null;
   }
 
+  /**
+   * The tree is only walked below the part of the pattern without glob characters, and no deeper than the pattern
+   * when it does not contain <code>**</code>. Hidden directories, <code>node_modules</code> and the content of the
+   * matching directories are not visited. A <code>**&#47;</code> also matches no directory at all, so that
+   * <code>**&#47;surefire-reports</code> matches a <code>surefire-reports</code> directory right under the base directory.
+   */
+  private static List<File> getReportsDirectoriesFromPattern(File baseDir, String pattern) {
+    String absolutePattern = FilenameUtils.separatorsToUnix(new File(pattern).isAbsolute() ? pattern : new File(baseDir, pattern).getPath());
+    int firstGlobCharacter = StringUtils.indexOfAny(absolutePattern, GLOB_CHARACTERS);
+    int rootLength = absolutePattern.lastIndexOf('/', firstGlobCharacter) + 1;
+    Path root = new File(absolutePattern.substring(0, rootLength)).toPath();
+    String relativePattern = absolutePattern.substring(rootLength);
+    int maxDepth = relativePattern.contains("**") ? Integer.MAX_VALUE : StringUtils.countMatches(relativePattern, "/") + 1;
+    ReportsDirectoriesFinder finder = new ReportsDirectoriesFinder(root, FileSystems.getDefault().getPathMatcher("glob:" + optionalDirectories(absolutePattern)),
+      relativePattern.contains("/.") || relativePattern.startsWith("."));
+    try {
+      Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), maxDepth, finder);
+      return finder.directories;
+    } catch (IOException e) {
+      LOGGER.info("Surefire report path pattern: " + pattern + " can not be resolved.", e);
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Hidden directories and <code>node_modules</code>, which never hold reports of the analysed project.
+   */
+  public static boolean isSkippedDirectory(Path dir) {
+    Path name = dir.getFileName();
+    return name != null && (NODE_MODULES.equals(name.toString()) || name.toString().startsWith("."));
+  }
+
+  private static String optionalDirectories(String pattern) {
+    if (pattern.contains("{")) {
+      // groups can not be nested
+      return pattern;
+    }
+    return pattern.replace("/**/", "{/**/,/}");
+  }
+
+  private static class ReportsDirectoriesFinder extends SimpleFileVisitor<Path> {
+
+    private final Path root;
+    private final PathMatcher matcher;
+    private final boolean visitHiddenDirectories;
+    private final List<File> directories = new ArrayList<>();
+
+    ReportsDirectoriesFinder(Path root, PathMatcher matcher, boolean visitHiddenDirectories) {
+      this.root = root;
+      this.matcher = matcher;
+      this.visitHiddenDirectories = visitHiddenDirectories;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+      if (matcher.matches(dir)) {
+        directories.add(dir.toFile());
+        return FileVisitResult.SKIP_SUBTREE;
+      }
+      if (!dir.equals(root) && isExcluded(dir)) {
+        return FileVisitResult.SKIP_SUBTREE;
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      // directories are visited as files at the maximum depth
+      if (attrs.isDirectory() && matcher.matches(file)) {
+        directories.add(file.toFile());
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) {
+      LOGGER.debug("Surefire report path: " + file + " can not be read.", e);
+      return FileVisitResult.CONTINUE;
+    }
+
+    private boolean isExcluded(Path dir) {
+      if (visitHiddenDirectories) {
+        return NODE_MODULES.equals(dir.getFileName().toString());
+      }
+      return isSkippedDirectory(dir);
+    }
+  }
+
 }
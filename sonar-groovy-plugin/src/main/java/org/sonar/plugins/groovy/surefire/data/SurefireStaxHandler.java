@@ -34,10 +34,21 @@ import java.util.Locale;
 
 public class SurefireStaxHandler implements XmlStreamHandler {
 
+  public static final int UNLIMITED_STACK_TRACE_LENGTH = -1;
+
   private final UnitTestIndex index;
+  private final int stackTraceMaxLength;
 
   public SurefireStaxHandler(UnitTestIndex index) {
+    this(index, UNLIMITED_STACK_TRACE_LENGTH);
+  }
+
+  /**
+   * @param stackTraceMaxLength number of characters kept from each stack trace, or {@link #UNLIMITED_STACK_TRACE_LENGTH}
+   */
+  public SurefireStaxHandler(UnitTestIndex index, int stackTraceMaxLength) {
     this.index = index;
+    this.stackTraceMaxLength = stackTraceMaxLength;
   }
 
   @Override
@@ -72,20 +83,46 @@ public class SurefireStaxHandler implements XmlStreamHandler {
     if(StringUtils.isNotBlank(testClassName) && testClassName.endsWith(")")) {
       testClassName = testClassName.substring(0, testClassName.indexOf('('));
     }
-    return StringUtils.defaultIfBlank(testClassName, defaultClassname);
+    testClassName = StringUtils.defaultIfBlank(testClassName, defaultClassname);
+    if (StringUtils.contains(testClassName, "$")) {
+      // Surefire reports classes whereas sonar supports files
+      testClassName = StringUtils.substringBefore(testClassName, "$");
+    }
+    return testClassName;
   }
 
-  private static void parseTestCase(SMInputCursor testCaseCursor, UnitTestClassReport report) throws XMLStreamException {
+  private void parseTestCase(SMInputCursor testCaseCursor, UnitTestClassReport report) throws XMLStreamException {
     report.add(parseTestResult(testCaseCursor));
   }
 
-  private static void setStackAndMessage(UnitTestResult result, SMInputCursor stackAndMessageCursor) throws XMLStreamException {
+  private void setStackAndMessage(UnitTestResult result, SMInputCursor stackAndMessageCursor) throws XMLStreamException {
     result.setMessage(stackAndMessageCursor.getAttrValue("message"));
-    String stack = stackAndMessageCursor.collectDescendantText();
+    String stack;
+    if (stackTraceMaxLength == UNLIMITED_STACK_TRACE_LENGTH) {
+      stack = stackAndMessageCursor.collectDescendantText();
+    } else {
+      stack = collectDescendantText(stackAndMessageCursor, stackTraceMaxLength);
+    }
     result.setStackTrace(stack);
   }
 
-  private static UnitTestResult parseTestResult(SMInputCursor testCaseCursor) throws XMLStreamException {
+  /**
+   * Same as {@link SMInputCursor#collectDescendantText()}, but text beyond maxLength is skipped without being materialized.
+   */
+  private static String collectDescendantText(SMInputCursor cursor, int maxLength) throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    SMInputCursor descendants = cursor.descendantMixedCursor();
+    SMEvent event;
+    for (event = descendants.getNext(); event != null; event = descendants.getNext()) {
+      if ((event == SMEvent.TEXT || event == SMEvent.CDATA) && text.length() < maxLength) {
+        String chunk = descendants.getText();
+        text.append(chunk, 0, Math.min(chunk.length(), maxLength - text.length()));
+      }
+    }
+    return text.toString();
+  }
+
+  private UnitTestResult parseTestResult(SMInputCursor testCaseCursor) throws XMLStreamException {
     UnitTestResult detail = new UnitTestResult();
     String name = getTestCaseName(testCaseCursor);
     detail.setName(name);
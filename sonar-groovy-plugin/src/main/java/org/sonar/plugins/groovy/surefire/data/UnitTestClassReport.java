@@ -33,10 +33,20 @@ public final class UnitTestClassReport {
   private long negativeTimeTestNumber = 0L;
   private List<UnitTestResult> results = null;
 
+  /**
+   * Combines the counters of both reports rather than re-evaluating the status of every result of the other report.
+   */
   public UnitTestClassReport add(UnitTestClassReport other) {
-    for (UnitTestResult otherResult : other.getResults()) {
-      add(otherResult);
+    if (other.results != null) {
+      initResults();
+      results.addAll(other.results);
     }
+    errors += other.errors;
+    failures += other.failures;
+    skipped += other.skipped;
+    tests += other.tests;
+    durationMilliseconds += other.durationMilliseconds;
+    negativeTimeTestNumber += other.negativeTimeTestNumber;
     return this;
   }
 
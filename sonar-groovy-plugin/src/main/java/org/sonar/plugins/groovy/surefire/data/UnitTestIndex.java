@@ -68,6 +68,13 @@ public class UnitTestIndex {
     return null;
   }
 
+  public UnitTestIndex merge(UnitTestIndex other) {
+    for (Map.Entry<String, UnitTestClassReport> entry : other.indexByClassname.entrySet()) {
+      index(entry.getKey()).add(entry.getValue());
+    }
+    return this;
+  }
+
   public void remove(String classname) {
     indexByClassname.remove(classname);
   }
@@ -0,0 +1,81 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens report files, decompressing them on the fly when they are compressed. The compression is detected from the
+ * first bytes of the file, whatever its name.
+ */
+public final class CompressedInput {
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private static final int GZIP_MAGIC = 0x1f8b;
+  private static final int ZSTD_MAGIC = 0x28b52ffd;
+
+  private CompressedInput() {
+  }
+
+  public static InputStream open(Path file) throws IOException {
+    return open(file, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Stream over the content of the file, decompressed if the file is compressed with gzip.
+   *
+   * @throws IOException if the file cannot be read, or is compressed with zstd, which is not supported
+   */
+  public static InputStream open(Path file, int bufferSize) throws IOException {
+    InputStream input = new BufferedInputStream(Files.newInputStream(file), bufferSize);
+    try {
+      int magic = peekMagic(input);
+      if ((magic >>> 16) == GZIP_MAGIC) {
+        return new BufferedInputStream(new GZIPInputStream(input, bufferSize), bufferSize);
+      } else if (magic == ZSTD_MAGIC) {
+        throw new IOException("Zstandard compressed files are not supported, decompress it before the analysis: " + file);
+      }
+      return input;
+    } catch (IOException | RuntimeException e) {
+      input.close();
+      throw e;
+    }
+  }
+
+  /**
+   * First four bytes of the stream, big-endian, missing bytes being read as zeros. The stream is reset afterwards.
+   */
+  private static int peekMagic(InputStream input) throws IOException {
+    input.mark(4);
+    int magic = 0;
+    for (int i = 0; i < 4; i++) {
+      int b = input.read();
+      magic = (magic << 8) | (b < 0 ? 0 : b);
+    }
+    input.reset();
+    return magic;
+  }
+}
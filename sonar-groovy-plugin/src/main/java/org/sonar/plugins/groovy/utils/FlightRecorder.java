@@ -0,0 +1,99 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.File;
+import javax.annotation.Nullable;
+
+/**
+ * Java Flight Recorder events emitted on the hot paths of the plugin, so that slow files and reports can be found in
+ * the recordings of the scanner.
+ * <p>
+ * JFR is not available on every Java 8 runtime: when {@code jdk.jfr.Event} is missing, events are never created and
+ * the classes extending it are never loaded. When it is available but the events are not enabled in the recording,
+ * the only cost is the creation of an event object which is not committed.
+ */
+public final class FlightRecorder {
+
+  /**
+   * Event being measured, committed when closed.
+   */
+  @FunctionalInterface
+  public interface Span extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static final Span NOT_RECORDED = () -> {
+  };
+
+  private static final boolean AVAILABLE = isAvailable();
+
+  private FlightRecorder() {
+  }
+
+  /**
+   * Lexing of a Groovy file, either to compute its metrics or to highlight and tokenize it.
+   */
+  public static Span fileLexing(File file, String purpose) {
+    return AVAILABLE ? recorded(FlightRecorderEvents.fileLexing(file, purpose)) : NOT_RECORDED;
+  }
+
+  /**
+   * Analysis of a Groovy file by the CodeNarc rules.
+   */
+  public static Span codeNarcFileAnalysis(File file) {
+    return AVAILABLE ? recorded(FlightRecorderEvents.codeNarcFileAnalysis(file)) : NOT_RECORDED;
+  }
+
+  /**
+   * Run of GMetrics over all the files of the module.
+   */
+  public static Span gMetricsAnalysis(int files) {
+    return AVAILABLE ? recorded(FlightRecorderEvents.gMetricsAnalysis(files)) : NOT_RECORDED;
+  }
+
+  /**
+   * Parsing of a report: CodeNarc, Cobertura or Surefire XML report, or JaCoCo execution data.
+   */
+  public static Span reportParsing(File report) {
+    return AVAILABLE ? recorded(FlightRecorderEvents.reportParsing(report)) : NOT_RECORDED;
+  }
+
+  /**
+   * Analysis of a compiled class by JaCoCo to compute its coverage.
+   */
+  public static Span coverageClassAnalysis(File classFile) {
+    return AVAILABLE ? recorded(FlightRecorderEvents.coverageClassAnalysis(classFile)) : NOT_RECORDED;
+  }
+
+  private static Span recorded(@Nullable Span span) {
+    return span == null ? NOT_RECORDED : span;
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightRecorder.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.File;
+import javax.annotation.CheckForNull;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.sonar.plugins.groovy.utils.FlightRecorder.Span;
+
+/**
+ * Events of {@link FlightRecorder}. This class refers to {@code jdk.jfr}, and must only be loaded once its availability
+ * is checked. Spans are null when their event is not enabled in the recording.
+ */
+final class FlightRecorderEvents {
+
+  private static final String CATEGORY = "SonarQube Groovy";
+
+  private FlightRecorderEvents() {
+  }
+
+  @CheckForNull
+  static Span fileLexing(File file, String purpose) {
+    FileLexingEvent event = new FileLexingEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.path = file.getPath();
+    event.size = file.length();
+    event.purpose = purpose;
+    return start(event);
+  }
+
+  @CheckForNull
+  static Span codeNarcFileAnalysis(File file) {
+    CodeNarcFileEvent event = new CodeNarcFileEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.path = file.getPath();
+    event.size = file.length();
+    return start(event);
+  }
+
+  @CheckForNull
+  static Span gMetricsAnalysis(int files) {
+    GMetricsEvent event = new GMetricsEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.files = files;
+    return start(event);
+  }
+
+  @CheckForNull
+  static Span reportParsing(File report) {
+    ReportParsingEvent event = new ReportParsingEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.path = report.getPath();
+    event.size = report.length();
+    return start(event);
+  }
+
+  @CheckForNull
+  static Span coverageClassAnalysis(File classFile) {
+    CoverageClassEvent event = new CoverageClassEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.path = classFile.getPath();
+    return start(event);
+  }
+
+  private static Span start(Event event) {
+    event.begin();
+    return event::commit;
+  }
+
+  @Name("org.sonar.plugins.groovy.FileLexing")
+  @Label("Groovy File Lexing")
+  @Category(CATEGORY)
+  static class FileLexingEvent extends Event {
+    @Label("Path")
+    String path;
+    @Label("Size")
+    @DataAmount
+    long size;
+    @Label("Purpose")
+    @Description("Metrics computation or highlighting and tokenization")
+    String purpose;
+  }
+
+  @Name("org.sonar.plugins.groovy.CodeNarcFileAnalysis")
+  @Label("CodeNarc File Analysis")
+  @Category(CATEGORY)
+  static class CodeNarcFileEvent extends Event {
+    @Label("Path")
+    String path;
+    @Label("Size")
+    @DataAmount
+    long size;
+  }
+
+  @Name("org.sonar.plugins.groovy.GMetricsAnalysis")
+  @Label("GMetrics Analysis")
+  @Category(CATEGORY)
+  static class GMetricsEvent extends Event {
+    @Label("Files")
+    int files;
+  }
+
+  @Name("org.sonar.plugins.groovy.ReportParsing")
+  @Label("Report Parsing")
+  @Category(CATEGORY)
+  static class ReportParsingEvent extends Event {
+    @Label("Path")
+    String path;
+    @Label("Size")
+    @DataAmount
+    long size;
+  }
+
+  @Name("org.sonar.plugins.groovy.CoverageClassAnalysis")
+  @Label("Coverage Class Analysis")
+  @Category(CATEGORY)
+  static class CoverageClassEvent extends Event {
+    @Label("Class File")
+    String path;
+  }
+}
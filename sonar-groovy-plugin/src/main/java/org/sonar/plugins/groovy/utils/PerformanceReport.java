@@ -0,0 +1,215 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.api.Startable;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.plugins.groovy.GroovyPlugin;
+
+/**
+ * Records the wall time, files and bytes processed, bytes allocated and heap used of each phase of the Groovy sensors.
+ * Each finished phase is logged and the whole report is rewritten as JSON in the working directory, so that performance
+ * can be followed from one build to the other. A summary of the module is logged once the module has been analyzed,
+ * when the batch stops this module level component. Nothing is measured unless {@link GroovyPlugin#PERFORMANCE_REPORT}
+ * is set.
+ * <p>
+ * Allocated bytes are those of the thread running the phase only, when the JVM can measure them: work handed over to
+ * other threads is not counted. The heap used is the one of the whole JVM, sampled when the phase ends: it includes
+ * garbage not collected yet and says nothing of the heap used during the phase.
+ */
+@BatchSide
+public class PerformanceReport implements Startable {
+
+  public static final String REPORT_FILE = "groovy-performance.json";
+
+  private static final Logger LOG = Loggers.get(PerformanceReport.class);
+
+  private static final Phase NOT_MEASURED = new Phase(null, null, null, null);
+
+  private final boolean enabled;
+  private final List<PhaseResult> results = new ArrayList<>();
+
+  public PerformanceReport(Settings settings) {
+    this.enabled = settings.getBoolean(GroovyPlugin.PERFORMANCE_REPORT);
+  }
+
+  /**
+   * Starts measuring a phase, which ends when the returned phase is closed.
+   */
+  public Phase start(SensorContext context, String sensor, String phase) {
+    return enabled ? new Phase(this, context.fileSystem().workDir(), sensor, phase) : NOT_MEASURED;
+  }
+
+  public static class Phase implements AutoCloseable {
+    private final PerformanceReport report;
+    private final File workDir;
+    private final String sensor;
+    private final String name;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+    private int files;
+    private long bytes;
+
+    private Phase(PerformanceReport report, File workDir, String sensor, String name) {
+      this.report = report;
+      this.workDir = workDir;
+      this.sensor = sensor;
+      this.name = name;
+      this.startNanos = System.nanoTime();
+      this.startAllocatedBytes = report == null ? -1 : allocatedBytes();
+    }
+
+    public void addFile(File file) {
+      if (report != null) {
+        files++;
+        bytes += file.length();
+      }
+    }
+
+    public void addFiles(List<InputFile> inputFiles) {
+      if (report != null) {
+        inputFiles.forEach(inputFile -> addFile(inputFile.file()));
+      }
+    }
+
+    @Override
+    public void close() {
+      if (report != null) {
+        long allocated = startAllocatedBytes < 0 ? -1 : (allocatedBytes() - startAllocatedBytes);
+        long wallTimeMillis = (System.nanoTime() - startNanos) / 1_000_000L;
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        report.add(workDir, new PhaseResult(sensor, name, wallTimeMillis, files, bytes, allocated, heapUsed));
+      }
+    }
+  }
+
+  private static class PhaseResult {
+    private final String sensor;
+    private final String phase;
+    private final long wallTimeMillis;
+    private final int files;
+    private final long bytes;
+    private final long allocatedBytes;
+    private final long heapUsedBytes;
+
+    private PhaseResult(String sensor, String phase, long wallTimeMillis, int files, long bytes, long allocatedBytes, long heapUsedBytes) {
+      this.sensor = sensor;
+      this.phase = phase;
+      this.wallTimeMillis = wallTimeMillis;
+      this.files = files;
+      this.bytes = bytes;
+      this.allocatedBytes = allocatedBytes;
+      this.heapUsedBytes = heapUsedBytes;
+    }
+
+    @Override
+    public String toString() {
+      return sensor + " " + phase + ": " + wallTimeMillis + " ms, " + files + " file(s), " + bytes + " bytes read"
+        + (allocatedBytes < 0 ? "" : (", " + allocatedBytes + " bytes allocated")) + ", heap used at the end " + heapUsedBytes + " bytes";
+    }
+  }
+
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  /**
+   * Logs the summary of the module, called by the batch once all the sensors of the module have run.
+   */
+  @Override
+  public synchronized void stop() {
+    if (results.isEmpty()) {
+      return;
+    }
+    long wallTimeMillis = 0;
+    int files = 0;
+    long bytes = 0;
+    long allocatedBytes = 0;
+    long maxHeapUsedBytes = 0;
+    for (PhaseResult result : results) {
+      wallTimeMillis += result.wallTimeMillis;
+      files += result.files;
+      bytes += result.bytes;
+      allocatedBytes = (allocatedBytes < 0 || result.allocatedBytes < 0) ? -1 : (allocatedBytes + result.allocatedBytes);
+      maxHeapUsedBytes = Math.max(maxHeapUsedBytes, result.heapUsedBytes);
+    }
+    LOG.info("Performance of the Groovy sensors: {} phase(s), {} ms, {} file(s), {} bytes read{}, at most {} bytes of heap used at the end of a phase",
+      results.size(), wallTimeMillis, files, bytes, allocatedBytes < 0 ? "" : (", " + allocatedBytes + " bytes allocated"), maxHeapUsedBytes);
+  }
+
+  private synchronized void add(File workDir, PhaseResult result) {
+    LOG.info("Performance of {}", result);
+    results.add(result);
+    File file = new File(workDir, REPORT_FILE);
+    try {
+      Files.createDirectories(workDir.toPath());
+      try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+        write(writer);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to write the performance report: " + file, e);
+    }
+  }
+
+  private void write(Writer writer) {
+    JsonWriter json = JsonWriter.of(writer);
+    json.beginObject().name("phases").beginArray();
+    for (PhaseResult result : results) {
+      json.beginObject()
+        .prop("sensor", result.sensor)
+        .prop("phase", result.phase)
+        .prop("wallTimeMs", result.wallTimeMillis)
+        .prop("files", result.files)
+        .prop("bytesRead", result.bytes);
+      if (result.allocatedBytes >= 0) {
+        json.prop("allocatedBytes", result.allocatedBytes);
+      }
+      json.prop("heapUsedBytes", result.heapUsedBytes).endObject();
+    }
+    json.endArray().endObject().close();
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+      if (hotspotThreads.isThreadAllocatedMemorySupported() && hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+        return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+}
@@ -27,22 +27,48 @@ import org.codehaus.staxmate.in.SMHierarchicCursor;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 
 public class StaxParser {
 
+  /**
+   * Size of the buffer used by default to read report files.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
   @FunctionalInterface
   public interface XmlStreamHandler {
     void stream(SMHierarchicCursor rootCursor) throws XMLStreamException;
   }
 
-  private SMInputFactory inf;
-  private XmlStreamHandler streamHandler;
+  /**
+   * Looking up and configuring the StAX implementation is costly, so it is done once. The factory is not changed once
+   * configured, and creating stream readers from it is then thread-safe.
+   */
+  private static final class SharedInputFactory {
+    private static final SMInputFactory INSTANCE = createInputFactory();
+
+    private SharedInputFactory() {
+    }
+  }
+
+  private final XmlStreamHandler streamHandler;
+  private final int bufferSize;
 
   public StaxParser(XmlStreamHandler streamHandler) {
+    this(streamHandler, DEFAULT_BUFFER_SIZE);
+  }
+
+  public StaxParser(XmlStreamHandler streamHandler, int bufferSize) {
     this.streamHandler = streamHandler;
+    this.bufferSize = bufferSize;
+  }
+
+  private static SMInputFactory createInputFactory() {
     XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
     if (xmlFactory instanceof WstxInputFactory) {
       WstxInputFactory wstxInputfactory = (WstxInputFactory) xmlFactory;
@@ -52,17 +78,32 @@ public class StaxParser {
     xmlFactory.setProperty(XMLInputFactory.IS_VALIDATING, false);
     xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
     xmlFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
-    inf = new SMInputFactory(xmlFactory);
+    return new SMInputFactory(xmlFactory);
   }
 
   public void parse(File xmlFile) throws XMLStreamException {
-    try(FileInputStream input = new FileInputStream(xmlFile)) {
-      parse(inf.rootElementCursor(input));
+    parse(xmlFile.toPath());
+  }
+
+  /**
+   * Parses the file, which may be compressed with gzip.
+   */
+  public void parse(Path xmlFile) throws XMLStreamException {
+    try (FlightRecorder.Span span = FlightRecorder.reportParsing(xmlFile.toFile());
+      InputStream input = CompressedInput.open(xmlFile, bufferSize)) {
+      parse(SharedInputFactory.INSTANCE.rootElementCursor(input));
     } catch (IOException e) {
       throw new XMLStreamException(e);
     }
   }
 
+  /**
+   * Parses the stream, which is buffered by this parser and closed once parsed.
+   */
+  public void parse(InputStream input) throws XMLStreamException {
+    parse(SharedInputFactory.INSTANCE.rootElementCursor(new BufferedInputStream(input, bufferSize)));
+  }
+
   private void parse(SMHierarchicCursor rootCursor) throws XMLStreamException {
     try {
       streamHandler.stream(rootCursor);
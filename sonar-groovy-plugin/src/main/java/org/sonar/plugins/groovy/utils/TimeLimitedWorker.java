@@ -0,0 +1,138 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Runs tasks one after the other on a daemon thread, waiting at most a given time for each of them.
+ * Analysers do not react to interruption: the thread of a task which does not complete in time is
+ * interrupted and abandoned, and the next tasks are run on a new thread. An abandoned thread keeps
+ * running until its task completes, so while too many of them are still alive, tasks are rejected
+ * without being run.
+ */
+public class TimeLimitedWorker implements AutoCloseable {
+
+  public static final int MAX_ABANDONED_THREADS = 4;
+
+  private static final Logger LOG = Loggers.get(TimeLimitedWorker.class);
+
+  /**
+   * Abandoned threads of all the workers, as they all share the processors of the scanner.
+   */
+  private static final Set<Thread> ABANDONED_THREADS = ConcurrentHashMap.newKeySet();
+
+  private final String threadName;
+  private final int maxAbandonedThreads;
+  private ExecutorService executor;
+  private Thread thread;
+  private boolean rejectionLogged;
+
+  public TimeLimitedWorker(String threadName) {
+    this(threadName, MAX_ABANDONED_THREADS);
+  }
+
+  public TimeLimitedWorker(String threadName, int maxAbandonedThreads) {
+    this.threadName = threadName;
+    this.maxAbandonedThreads = maxAbandonedThreads;
+  }
+
+  /**
+   * @throws TimeoutException if the task does not complete in time, its thread being abandoned
+   * @throws RejectedExecutionException if the task is not run, as too many abandoned threads are still running
+   */
+  public <T> T call(Callable<T> task, long timeoutMillis) throws TimeoutException {
+    if (abandonedThreads() >= maxAbandonedThreads) {
+      if (!rejectionLogged) {
+        LOG.warn("{} thread(s) abandoned after exceeding the time limit are still running, {} is suspended until they complete",
+          maxAbandonedThreads, threadName);
+        rejectionLogged = true;
+      }
+      throw new RejectedExecutionException(maxAbandonedThreads + " abandoned thread(s) are still running");
+    }
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(runnable -> {
+        thread = new Thread(runnable, threadName);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    Future<T> future = executor.submit(task);
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      abandon();
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      abandon();
+      throw new IllegalStateException("Interrupted while waiting for " + threadName, e);
+    } catch (ExecutionException e) {
+      throw propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Number of abandoned threads, of any worker, which are still running.
+   */
+  public static int abandonedThreads() {
+    ABANDONED_THREADS.removeIf(abandonedThread -> !abandonedThread.isAlive());
+    return ABANDONED_THREADS.size();
+  }
+
+  private static RuntimeException propagate(Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IllegalStateException(cause);
+  }
+
+  private void abandon() {
+    if (thread != null && thread.isAlive()) {
+      ABANDONED_THREADS.add(thread);
+    }
+    close();
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+      thread = null;
+    }
+  }
+
+}
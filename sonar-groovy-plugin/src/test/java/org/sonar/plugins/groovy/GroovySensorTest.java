@@ -32,6 +32,8 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
 
 import java.io.File;
 import java.io.IOException;
@@ -47,13 +49,13 @@ public class GroovySensorTest {
   private Settings settings = new Settings();
   private FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
   private DefaultFileSystem fileSystem = new DefaultFileSystem(new File("."));
-  private GroovySensor sensor = new GroovySensor(settings, fileLinesContextFactory, fileSystem);
+  private GroovySensor sensor = new GroovySensor(settings, fileLinesContextFactory, new GroovyFileSystem(fileSystem, settings), new PerformanceReport(settings));
 
   @Test
   public void do_nothing_when_no_groovy_file() throws IOException {
     SensorContextTester context = SensorContextTester.create(new File(""));
     context = Mockito.spy(context);
-    sensor = new GroovySensor(settings, fileLinesContextFactory, context.fileSystem());
+    sensor = new GroovySensor(settings, fileLinesContextFactory, new GroovyFileSystem(context.fileSystem(), settings), new PerformanceReport(settings));
     sensor.execute(context);
 
     Mockito.verify(context, Mockito.never()).newHighlighting();
@@ -86,7 +88,7 @@ public class GroovySensorTest {
     FileLinesContext fileLinesContext = mock(FileLinesContext.class);
     when(fileLinesContextFactory.createFor(any(DefaultInputFile.class))).thenReturn(fileLinesContext);
 
-    sensor = new GroovySensor(settings, fileLinesContextFactory, fileSystem);
+    sensor = new GroovySensor(settings, fileLinesContextFactory, new GroovyFileSystem(fileSystem, settings), new PerformanceReport(settings));
     sensor.execute(context);
 
     String key = groovyFile.key();
@@ -129,7 +131,7 @@ public class GroovySensorTest {
     FileLinesContext fileLinesContext = mock(FileLinesContext.class);
     when(fileLinesContextFactory.createFor(any(DefaultInputFile.class))).thenReturn(fileLinesContext);
 
-    sensor = new GroovySensor(settings, fileLinesContextFactory, fileSystem);
+    sensor = new GroovySensor(settings, fileLinesContextFactory, new GroovyFileSystem(fileSystem, settings), new PerformanceReport(settings));
     sensor.execute(context);
 
     assertCouplingMeasureAre(context, org.key(), 3, 1.0, 3, 1.0);
@@ -29,7 +29,6 @@ import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.fs.FilePredicate;
-import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
@@ -42,6 +41,8 @@ import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.Settings;
 import org.sonar.plugins.groovy.GroovyPlugin;
 import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -59,7 +60,7 @@ public class CoberturaSensorTest {
     settings = new Settings();
     settings.setProperty(GroovyPlugin.COBERTURA_REPORT_PATH, "src/test/resources/org/sonar/plugins/groovy/cobertura/coverage.xml");
     fileSystem = new DefaultFileSystem(new File("."));
-    sensor = new CoberturaSensor(settings, fileSystem);
+    sensor = new CoberturaSensor(settings, new GroovyFileSystem(fileSystem), new PerformanceReport(new Settings()));
   }
 
   @Test
@@ -74,36 +75,13 @@ public class CoberturaSensorTest {
    */
   @Test
   public void should_parse_report() {
-    FilePredicates fp = mock(FilePredicates.class);
-
-    class CustomFilePredicate implements FilePredicate {
-
-      final String fileName;
-
-      CustomFilePredicate(String fileName) {
-        this.fileName = fileName;
-      }
-
-      @Override
-      public boolean apply(InputFile inputFile) {
-        return true;
-      }
-    }
-
-    when(fp.hasAbsolutePath(ArgumentMatchers.anyString())).thenAnswer(new Answer<FilePredicate>() {
-      @Override
-      public FilePredicate answer(InvocationOnMock invocation) throws Throwable {
-        return new CustomFilePredicate(invocation.<String>getArgument(0));
-      }
-    });
-
-    FileSystem mockfileSystem = mock(FileSystem.class);
-    when(mockfileSystem.predicates()).thenReturn(fp);
-    when(mockfileSystem.hasFiles(ArgumentMatchers.nullable(FilePredicate.class))).thenReturn(true);
+    GroovyFileSystem groovyFileSystem = mock(GroovyFileSystem.class);
+    when(groovyFileSystem.hasGroovyFiles()).thenReturn(true);
+    when(groovyFileSystem.baseDir()).thenReturn(new File("."));
 
     Map<String, DefaultInputFile> groovyFilesByName = new HashMap<>();
 
-    when(mockfileSystem.inputFile(any(FilePredicate.class))).thenAnswer(new Answer<InputFile>() {
+    when(groovyFileSystem.inputFileFromAbsolutePath(ArgumentMatchers.anyString())).thenAnswer(new Answer<InputFile>() {
       boolean firstCall = true;
 
       @Override
@@ -113,7 +91,7 @@ public class CoberturaSensorTest {
           firstCall = false;
           return new DefaultInputFile("", "fake.java").setLanguage("java");
         }
-        String fileName = invocation.<CustomFilePredicate>getArgument(0).fileName;
+        String fileName = invocation.getArgument(0);
         DefaultInputFile groovyFile;
         if (!groovyFilesByName.containsKey(fileName)) {
           // store groovy file as default input files
@@ -123,7 +101,7 @@ public class CoberturaSensorTest {
         return groovyFilesByName.get(fileName);
       }
     });
-    sensor = new CoberturaSensor(settings, mockfileSystem);
+    sensor = new CoberturaSensor(settings, groovyFileSystem, new PerformanceReport(new Settings()));
 
     SensorContextTester context = SensorContextTester.create(new File(""));
     sensor.execute(context);
@@ -149,7 +127,7 @@ public class CoberturaSensorTest {
     FileSystem mockfileSystem = mock(FileSystem.class);
     when(mockfileSystem.predicates()).thenReturn(fileSystem.predicates());
     when(mockfileSystem.inputFile(any(FilePredicate.class))).thenReturn(null);
-    sensor = new CoberturaSensor(settings, mockfileSystem);
+    sensor = new CoberturaSensor(settings, new GroovyFileSystem(mockfileSystem), new PerformanceReport(new Settings()));
 
     SensorContext context = mock(SensorContext.class);
     sensor.execute(context);
@@ -161,7 +139,7 @@ public class CoberturaSensorTest {
   public void should_not_parse_report_if_settings_does_not_contain_report_path() {
     DefaultFileSystem fileSystem = new DefaultFileSystem(new File("."));
     fileSystem.add(new DefaultInputFile("", "fake.groovy").setLanguage(Groovy.KEY));
-    sensor = new CoberturaSensor(new Settings(), fileSystem);
+    sensor = new CoberturaSensor(new Settings(), new GroovyFileSystem(fileSystem), new PerformanceReport(new Settings()));
 
     SensorContext context = mock(SensorContext.class);
     sensor.execute(context);
@@ -177,7 +155,7 @@ public class CoberturaSensorTest {
     DefaultFileSystem fileSystem = new DefaultFileSystem(new File("."));
     fileSystem.add(new DefaultInputFile("", "fake.groovy").setLanguage(Groovy.KEY));
 
-    sensor = new CoberturaSensor(settings, fileSystem);
+    sensor = new CoberturaSensor(settings, new GroovyFileSystem(fileSystem), new PerformanceReport(new Settings()));
 
     SensorContext context = mock(SensorContext.class);
     sensor.execute(context);
@@ -193,7 +171,7 @@ public class CoberturaSensorTest {
     DefaultFileSystem fileSystem = new DefaultFileSystem(new File("."));
     fileSystem.add(new DefaultInputFile("", "fake.groovy").setLanguage(Groovy.KEY));
 
-    sensor = new CoberturaSensor(settings, fileSystem);
+    sensor = new CoberturaSensor(settings, new GroovyFileSystem(fileSystem), new PerformanceReport(new Settings()));
 
     SensorContext context = mock(SensorContext.class);
     sensor.execute(context);
@@ -0,0 +1,71 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.codenarc.rule.Violation;
+import org.codenarc.rule.basic.EmptyClassRule;
+import org.codenarc.ruleset.ListRuleSet;
+import org.codenarc.source.SourceString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.plugins.groovy.codenarc.CodeNarcRuleProfiler.FileProfile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CodeNarcRuleProfilerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_only_keep_measures_of_recorded_files() throws Exception {
+    CodeNarcRuleProfiler profiler = new CodeNarcRuleProfiler();
+    org.codenarc.rule.Rule rule = (org.codenarc.rule.Rule) profiler.profile(new ListRuleSet(Collections.singletonList(new EmptyClassRule()))).getRules().get(0);
+    SourceString source = new SourceString("class Empty {\n}");
+
+    FileProfile abandoned = profiler.profile(new DefaultInputFile("", "src/Abandoned.groovy"), () -> applyTo(rule, source));
+    FileProfile recorded = profiler.profile(new DefaultInputFile("", "src/Recorded.groovy"), () -> applyTo(rule, source));
+    profiler.record(recorded);
+
+    assertThat(abandoned.violations()).hasSize(1);
+    File report = temp.newFile();
+    profiler.writeReport(report);
+    List<String> lines = FileUtils.readLines(report, StandardCharsets.UTF_8);
+    assertThat(lines.get(1)).startsWith("EmptyClass\t").endsWith("\t1\t1");
+    assertThat(lines.stream().noneMatch(line -> line.startsWith("src/Abandoned.groovy"))).isTrue();
+    assertThat(lines.stream().anyMatch(line -> line.startsWith("src/Recorded.groovy\t") && line.endsWith("\t1"))).isTrue();
+  }
+
+  private static List<Violation> applyTo(org.codenarc.rule.Rule rule, SourceString source) {
+    try {
+      return rule.applyTo(source);
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
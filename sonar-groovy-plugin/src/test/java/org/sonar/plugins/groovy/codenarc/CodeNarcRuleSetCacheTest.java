@@ -0,0 +1,45 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.util.Collections;
+import org.codenarc.ruleset.ListRuleSet;
+import org.codenarc.ruleset.RuleSet;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CodeNarcRuleSetCacheTest {
+
+  @Test
+  public void should_reload_ruleset_when_configuration_changes() {
+    CodeNarcRuleSetCache cache = new CodeNarcRuleSetCache();
+    RuleSet ruleSet = new ListRuleSet(Collections.emptyList());
+
+    assertThat(cache.get("<ruleset/>", () -> ruleSet)).isSameAs(ruleSet);
+    assertThat(cache.get(new String("<ruleset/>"), () -> {
+      throw new AssertionError("ruleset should be reused");
+    })).isSameAs(ruleSet);
+
+    RuleSet otherRuleSet = new ListRuleSet(Collections.emptyList());
+    assertThat(cache.get("<ruleset></ruleset>", () -> otherRuleSet)).isSameAs(otherRuleSet);
+  }
+
+}
@@ -25,15 +25,18 @@ import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Pattern;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.batch.sensor.internal.MockAnalysisMode;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
@@ -43,6 +46,7 @@ import org.sonar.api.rules.ActiveRule;
 import org.sonar.plugins.groovy.GroovyPlugin;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -54,6 +58,7 @@ public class CodeNarcSensorTest {
   private CodeNarcSensor sensor;
   private Groovy groovy;
   private SensorContextTester sensorContextTester;
+  private MockAnalysisMode analysisMode;
 
   @org.junit.Rule
   public TemporaryFolder temp = new TemporaryFolder();
@@ -68,7 +73,9 @@ public class CodeNarcSensorTest {
 
     sensorContextTester.setSettings(new Settings(new PropertyDefinitions(GroovyPlugin.class)));
     groovy = new Groovy(sensorContextTester.settings());
-    sensor = new CodeNarcSensor(profile, new GroovyFileSystem(sensorContextTester.fileSystem()));
+    analysisMode = new MockAnalysisMode();
+    sensor = new CodeNarcSensor(profile, new GroovyFileSystem(sensorContextTester.fileSystem()), new CodeNarcRuleSetCache(), analysisMode,
+      new PerformanceReport(new Settings()));
   }
 
   @Test
@@ -112,6 +119,81 @@ public class CodeNarcSensorTest {
     assertThat(sensorContextTester.allIssues()).hasSize(17);
   }
 
+  @Test
+  public void should_parse_several_reports_and_ignore_duplicated_violations() throws Exception {
+
+    ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
+    activeRulesBuilder = activateFakeRule(activeRulesBuilder, "EmptyIfStatement");
+    activeRulesBuilder = activateFakeRule(activeRulesBuilder, "UnnecessaryGroovyImport");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+
+    File report = getReportWithUpdatedSourceDir();
+    File otherReport = getReportWithUpdatedSourceDir();
+    sensorContextTester.settings().setProperty(GroovyPlugin.CODENARC_REPORT_PATHS, report.getAbsolutePath() + "," + otherReport.getAbsolutePath());
+
+    addFileWithFakeContent("src/org/codenarc/sample/domain/SampleDomain.groovy");
+    addFileWithFakeContent("src/org/codenarc/sample/service/NewService.groovy");
+    addFileWithFakeContent("src/org/codenarc/sample/service/OtherService.groovy");
+    addFileWithFakeContent("src/org/codenarc/sample/service/SampleService.groovy");
+
+    sensor.execute(sensorContextTester);
+
+    assertThat(sensorContextTester.allIssues()).hasSize(4);
+  }
+
+  @Test
+  public void should_keep_duplicated_violations_of_a_same_report() throws Exception {
+
+    ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
+    activeRulesBuilder = activateFakeRule(activeRulesBuilder, "EmptyIfStatement");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+    addFileWithFakeContent("src/org/codenarc/sample/domain/SampleDomain.groovy");
+
+    String sourceDir = sensorContextTester.fileSystem().baseDir().toPath().resolve("src").toAbsolutePath().toString().replaceAll("\\\\", "/");
+    String violation = "<Violation ruleName='EmptyIfStatement' priority='2' lineNumber='21'/>";
+    String content = "<CodeNarc><Project><SourceDirectory>" + sourceDir + "</SourceDirectory></Project>"
+      + "<Package path='org/codenarc/sample/domain'><File name='SampleDomain.groovy'>" + violation + violation + "</File></Package></CodeNarc>";
+    File report = temp.newFile();
+    FileUtils.write(report, content, StandardCharsets.UTF_8);
+    File otherReport = temp.newFile();
+    FileUtils.write(otherReport, content, StandardCharsets.UTF_8);
+
+    sensorContextTester.settings().setProperty(GroovyPlugin.CODENARC_REPORT_PATHS, report.getAbsolutePath());
+    sensor.execute(sensorContextTester);
+    assertThat(sensorContextTester.allIssues()).hasSize(2);
+
+    sensorContextTester.settings().setProperty(GroovyPlugin.CODENARC_REPORT_PATHS, report.getAbsolutePath() + "," + otherReport.getAbsolutePath());
+    sensor.execute(sensorContextTester);
+    assertThat(sensorContextTester.allIssues()).hasSize(4);
+  }
+
+  @Test
+  public void should_keep_duplicated_violations_of_the_report_reporting_them_the_most_whatever_the_parsing_order() throws Exception {
+    sensor = new CodeNarcSensor(profile, new GroovyFileSystem(sensorContextTester.fileSystem()), new CodeNarcRuleSetCache(), analysisMode,
+      new PerformanceReport(new Settings()), 4);
+    ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
+    activeRulesBuilder = activateFakeRule(activeRulesBuilder, "EmptyIfStatement");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+    addFileWithFakeContent("src/org/codenarc/sample/domain/SampleDomain.groovy");
+
+    String sourceDir = sensorContextTester.fileSystem().baseDir().toPath().resolve("src").toAbsolutePath().toString().replaceAll("\\\\", "/");
+    String violation = "<Violation ruleName='EmptyIfStatement' priority='2' lineNumber='21'/>";
+    String reportPaths = "";
+    for (int i = 0; i < 8; i++) {
+      File report = temp.newFile();
+      FileUtils.write(report, "<CodeNarc><Project><SourceDirectory>" + sourceDir + "</SourceDirectory></Project>"
+        + "<Package path='org/codenarc/sample/domain'><File name='SampleDomain.groovy'>" + (i == 5 ? violation + violation : violation)
+        + "</File></Package></CodeNarc>", StandardCharsets.UTF_8);
+      reportPaths += report.getAbsolutePath() + ",";
+    }
+    sensorContextTester.settings().setProperty(GroovyPlugin.CODENARC_REPORT_PATHS, reportPaths);
+
+    for (int run = 1; run <= 20; run++) {
+      sensor.execute(sensorContextTester);
+      assertThat(sensorContextTester.allIssues()).hasSize(2 * run);
+    }
+  }
+
   @Test
   public void should_parse_but_not_add_issue_if_rule_not_found() throws Exception {
 
@@ -183,6 +265,87 @@ public class CodeNarcSensorTest {
     assertThat(sensorContextTester.allIssues()).isEmpty();
   }
 
+  @Test
+  public void should_reuse_code_narc_configuration_when_profile_is_unchanged() throws IOException {
+
+    addFileWithContent("src/sample.groovy", "package source\nclass SourceFile1 {\n}");
+
+    ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
+    activeRulesBuilder = activateRule(activeRulesBuilder, "org.codenarc.rule.basic.EmptyClassRule", "EmptyClass");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+
+    ActiveRule activeRule = mock(ActiveRule.class);
+    when(activeRule.getRuleKey()).thenReturn("org.codenarc.rule.basic.EmptyClassRule");
+    when(profile.getActiveRulesByRepository(CodeNarcRulesDefinition.REPOSITORY_KEY)).thenReturn(Arrays.asList(activeRule));
+
+    sensor.execute(sensorContextTester);
+    File configuration = new File(sensorContextTester.fileSystem().workDir(), "codenarc/profile.xml");
+    assertThat(configuration.setLastModified(0L)).isTrue();
+    sensor.execute(sensorContextTester);
+
+    assertThat(configuration.lastModified()).isEqualTo(0L);
+    assertThat(sensorContextTester.allIssues()).hasSize(2);
+  }
+
+  @Test
+  public void should_run_code_narc_on_changed_files_only() throws IOException {
+
+    analysisMode.setPreviewOrIssue(true);
+    addFilesWithStatusesAndActivateEmptyClassRule();
+
+    sensor.execute(sensorContextTester);
+
+    assertThat(sensorContextTester.allIssues()).hasSize(1);
+    assertThat(sensorContextTester.allIssues().iterator().next().primaryLocation().inputComponent().key()).endsWith("src/foo/bar/qix/sample.groovy");
+  }
+
+  @Test
+  public void should_run_code_narc_on_all_files_in_publish_mode() throws IOException {
+
+    addFilesWithStatusesAndActivateEmptyClassRule();
+
+    sensor.execute(sensorContextTester);
+
+    assertThat(sensorContextTester.allIssues()).hasSize(2);
+  }
+
+  private void addFilesWithStatusesAndActivateEmptyClassRule() throws IOException {
+    addFileWithContent("src/sample.groovy", "package source\nclass SourceFile1 {\n}").setStatus(Status.SAME);
+    addFileWithContent("src/foo/bar/qix/sample.groovy", "package source\nclass SourceFile1 {\n}").setStatus(Status.ADDED);
+    sensorContextTester.settings().setProperty(GroovyPlugin.CODENARC_CHANGED_FILES_ONLY, true);
+
+    ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
+    activeRulesBuilder = activateRule(activeRulesBuilder, "org.codenarc.rule.basic.EmptyClassRule", "EmptyClass");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+
+    ActiveRule activeRule = mock(ActiveRule.class);
+    when(activeRule.getRuleKey()).thenReturn("org.codenarc.rule.basic.EmptyClassRule");
+    when(profile.getActiveRulesByRepository(CodeNarcRulesDefinition.REPOSITORY_KEY)).thenReturn(Arrays.asList(activeRule));
+  }
+
+  @Test
+  public void should_profile_code_narc_rules() throws IOException {
+
+    addFileWithContent("src/sample.groovy", "package source\nclass SourceFile1 {\n}");
+    sensorContextTester.settings().setProperty(GroovyPlugin.CODENARC_PROFILING, true);
+
+    ActiveRulesBuilder activeRulesBuilder = new ActiveRulesBuilder();
+    activeRulesBuilder = activateRule(activeRulesBuilder, "org.codenarc.rule.basic.EmptyClassRule", "EmptyClass");
+    sensorContextTester.setActiveRules(activeRulesBuilder.build());
+
+    ActiveRule activeRule = mock(ActiveRule.class);
+    when(activeRule.getRuleKey()).thenReturn("org.codenarc.rule.basic.EmptyClassRule");
+    when(profile.getActiveRulesByRepository(CodeNarcRulesDefinition.REPOSITORY_KEY)).thenReturn(Arrays.asList(activeRule));
+
+    sensor.execute(sensorContextTester);
+
+    assertThat(sensorContextTester.allIssues()).hasSize(1);
+    File report = new File(sensorContextTester.fileSystem().workDir(), "codenarc/rules-profiling.txt");
+    List<String> lines = FileUtils.readLines(report, StandardCharsets.UTF_8);
+    assertThat(lines.get(1)).startsWith("EmptyClass\t").endsWith("\t1\t1");
+    assertThat(lines.stream().anyMatch(line -> line.startsWith("src/sample.groovy\t") && line.endsWith("\t1"))).isTrue();
+  }
+
   @Test
   public void should_run_code_narc_with_multiple_files() throws IOException {
 
@@ -219,13 +382,14 @@ public class CodeNarcSensorTest {
       .initMetadata(new String(Files.readAllBytes(sampleFile.toPath()), "UTF-8")));
   }
 
-  private void addFileWithContent(String path, String content) throws UnsupportedEncodingException, IOException {
+  private DefaultInputFile addFileWithContent(String path, String content) throws UnsupportedEncodingException, IOException {
     DefaultInputFile inputFile = new DefaultInputFile(sensorContextTester.module().key(), path)
       .setLanguage(Groovy.KEY)
       .setType(Type.MAIN)
       .initMetadata(content);
     sensorContextTester.fileSystem().add(inputFile);
     FileUtils.write(inputFile.file(), content, StandardCharsets.UTF_8);
+    return inputFile;
   }
 
   private static ActiveRulesBuilder activateFakeRule(ActiveRulesBuilder activeRulesBuilder, String ruleKey) {
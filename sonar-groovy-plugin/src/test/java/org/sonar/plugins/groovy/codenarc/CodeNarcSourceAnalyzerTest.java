@@ -0,0 +1,48 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.codenarc;
+
+import java.util.Arrays;
+import org.codenarc.rule.basic.EmptyClassRule;
+import org.codenarc.rule.design.CloneWithoutCloneableRule;
+import org.codenarc.rule.imports.UnusedImportRule;
+import org.codenarc.ruleset.ListRuleSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CodeNarcSourceAnalyzerTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Test
+  public void should_log_rules_requiring_a_later_compiler_phase() {
+    ListRuleSet ruleSet = new ListRuleSet(Arrays.asList(new CloneWithoutCloneableRule(), new EmptyClassRule(), new UnusedImportRule()));
+
+    CodeNarcSourceAnalyzer.logCompilerPhases(ruleSet);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).containsOnly("1 CodeNarc rule(s) compiling files up to the semantic analysis phase: [CloneWithoutCloneable]");
+  }
+
+}
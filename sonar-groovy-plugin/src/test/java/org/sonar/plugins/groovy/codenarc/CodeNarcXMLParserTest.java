@@ -19,48 +19,63 @@
  */
 package org.sonar.plugins.groovy.codenarc;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.junit.Rule;
 import org.junit.Test;
-import org.mockito.ArgumentMatchers;
-import org.mockito.Matchers;
-import org.mockito.Mockito;
-import org.sonar.api.batch.fs.FilePredicate;
-import org.sonar.api.batch.fs.FilePredicates;
-import org.sonar.api.batch.fs.FileSystem;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.plugins.groovy.codenarc.CodeNarcXMLParser.CodeNarcViolation;
+import org.sonar.plugins.groovy.foundation.Groovy;
+import org.sonar.plugins.groovy.foundation.GroovyFileSystem;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class CodeNarcXMLParserTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void should_parse_report() throws Exception {
-    FileSystem fileSystem = Mockito.mock(FileSystem.class);
-    Mockito.when(fileSystem.predicates()).thenReturn(Mockito.mock(FilePredicates.class));
-    Mockito.when(fileSystem.hasFiles(ArgumentMatchers.nullable(FilePredicate.class))).thenReturn(true);
-    List<CodeNarcViolation> violations = CodeNarcXMLParser.parse(FileUtils.toFile(getClass().getResource("parsing/sample.xml")), fileSystem);
+    File baseDir = temp.newFolder();
+    String sourceDir = FilenameUtils.separatorsToUnix(baseDir.getAbsolutePath());
+    DefaultFileSystem fileSystem = new DefaultFileSystem(baseDir);
+    DefaultInputFile sampleDomain = new DefaultInputFile("", "org/codenarc/sample/domain/SampleDomain.groovy")
+      .setModuleBaseDir(baseDir.toPath())
+      .setType(InputFile.Type.MAIN)
+      .setLanguage(Groovy.KEY);
+    fileSystem.add(sampleDomain);
+    File report = temp.newFile("sample.xml");
+    String sample = FileUtils.readFileToString(FileUtils.toFile(getClass().getResource("parsing/sample.xml")), StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(report, sample.replace("[sourcedir]", sourceDir), StandardCharsets.UTF_8);
+    List<CodeNarcViolation> violations = CodeNarcXMLParser.parse(report, new GroovyFileSystem(fileSystem));
 
     assertThat(violations.size()).isEqualTo(17);
 
     CodeNarcViolation violation = violations.get(0);
     assertThat(violation.getRuleName()).isEqualTo("EmptyElseBlock");
-    assertThat(violation.getFilename()).isEqualTo("[sourcedir]/org/codenarc/sample/domain/SampleDomain.groovy");
+    assertThat(violation.getFilename()).isEqualTo(sourceDir + "/org/codenarc/sample/domain/SampleDomain.groovy");
+    assertThat(violation.getInputFile()).isSameAs(sampleDomain);
     assertThat(violation.getLine()).isEqualTo(24);
     assertThat(violation.getMessage()).isEqualTo("");
 
     violation = violations.get(1);
     assertThat(violation.getRuleName()).isEqualTo("EmptyIfStatement");
-    assertThat(violation.getFilename()).isEqualTo("[sourcedir]/org/codenarc/sample/domain/SampleDomain.groovy");
+    assertThat(violation.getFilename()).isEqualTo(sourceDir + "/org/codenarc/sample/domain/SampleDomain.groovy");
     assertThat(violation.getLine()).isEqualTo(21);
     assertThat(violation.getMessage()).isEqualTo("");
   }
 
   @Test
   public void should_not_fail_if_line_number_not_specified() throws Exception {
-    FileSystem fileSystem = Mockito.mock(FileSystem.class);
-    Mockito.when(fileSystem.predicates()).thenReturn(Mockito.mock(FilePredicates.class));
-    Mockito.when(fileSystem.hasFiles(Matchers.any(FilePredicate.class))).thenReturn(true);
+    GroovyFileSystem fileSystem = new GroovyFileSystem(new DefaultFileSystem(temp.newFolder()));
     List<CodeNarcViolation> violations = CodeNarcXMLParser.parse(FileUtils.toFile(getClass().getResource("parsing/line-number-not-specified.xml")), fileSystem);
 
     assertThat(violations.size()).isEqualTo(1);
@@ -68,8 +83,19 @@ public class CodeNarcXMLParserTest {
     CodeNarcViolation violation = violations.get(0);
     assertThat(violation.getRuleName()).isEqualTo("CyclomaticComplexity");
     assertThat(violation.getFilename()).isEqualTo("org/example/Example.groovy");
+    assertThat(violation.getInputFile()).isNull();
     assertThat(violation.getLine()).isNull();
     assertThat(violation.getMessage()).isEqualTo("The cyclomatic complexity for class [org.example.Example] is [27.0]");
   }
 
+  @Test
+  public void should_hand_over_violations_while_parsing() throws Exception {
+    GroovyFileSystem fileSystem = new GroovyFileSystem(new DefaultFileSystem(temp.newFolder()));
+    List<String> rules = new ArrayList<>();
+    CodeNarcXMLParser.parse(FileUtils.toFile(getClass().getResource("parsing/sample.xml")), fileSystem, violation -> rules.add(violation.getRuleName()));
+
+    assertThat(rules).hasSize(17);
+    assertThat(rules.get(0)).isEqualTo("EmptyElseBlock");
+  }
+
 }
@@ -19,18 +19,31 @@
  */
 package org.sonar.plugins.groovy.foundation;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.plugins.groovy.GroovyPlugin;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class GroovyFileSystemTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private DefaultFileSystem fileSystem;
   private GroovyFileSystem groovyFileSystem;
 
@@ -56,10 +69,10 @@ public class GroovyFileSystemTest {
     assertThat(groovyFileSystem.sourceFiles()).isEmpty();
 
     fileSystem.add(new DefaultInputFile("", "fake.file"));
-    assertThat(groovyFileSystem.sourceFiles()).isEmpty();
+    assertThat(new GroovyFileSystem(fileSystem).sourceFiles()).isEmpty();
 
     fileSystem.add(new DefaultInputFile("", "fake.groovy").setLanguage(Groovy.KEY));
-    assertThat(groovyFileSystem.sourceFiles()).hasSize(1);
+    assertThat(new GroovyFileSystem(fileSystem).sourceFiles()).hasSize(1);
   }
 
   @Test
@@ -67,12 +80,75 @@ public class GroovyFileSystemTest {
     assertThat(groovyFileSystem.sourceInputFileFromRelativePath(null)).isNull();
 
     fileSystem.add(new DefaultInputFile("", "fake1.file"));
-    assertThat(groovyFileSystem.sourceInputFileFromRelativePath("fake1.file")).isNull();
-
     fileSystem.add(new DefaultInputFile("", "fake2.file").setType(Type.MAIN).setLanguage(Groovy.KEY));
-    assertThat(groovyFileSystem.sourceInputFileFromRelativePath("fake2.file")).isNotNull();
-
     fileSystem.add(new DefaultInputFile("", "org/sample/foo/fake3.file").setType(Type.MAIN).setLanguage(Groovy.KEY));
+    groovyFileSystem = new GroovyFileSystem(fileSystem);
+    assertThat(groovyFileSystem.sourceInputFileFromRelativePath("fake1.file")).isNull();
+    assertThat(groovyFileSystem.sourceInputFileFromRelativePath("fake2.file")).isNotNull();
     assertThat(groovyFileSystem.sourceInputFileFromRelativePath("foo/fake3.file")).isNotNull();
+    assertThat(groovyFileSystem.sourceInputFileFromRelativePath("oo/fake3.file")).isNull();
+  }
+
+  @Test
+  public void indexFilesOnce() {
+    DefaultInputFile main = new DefaultInputFile("", "src/main/groovy/org/Foo.groovy").setType(Type.MAIN).setLanguage(Groovy.KEY);
+    DefaultInputFile otherMain = new DefaultInputFile("", "src/other/groovy/org/Foo.groovy").setType(Type.MAIN).setLanguage(Groovy.KEY);
+    DefaultInputFile test = new DefaultInputFile("", "src/test/groovy/org/FooTest.groovy").setType(Type.TEST).setLanguage(Groovy.KEY);
+    fileSystem.add(main);
+    fileSystem.add(otherMain);
+    fileSystem.add(test);
+
+    assertThat(groovyFileSystem.groovyInputFiles()).containsOnly(main, otherMain, test);
+    assertThat(groovyFileSystem.sourceInputFiles()).containsOnly(main, otherMain);
+    assertThat(groovyFileSystem.inputFileFromRelativePath("src/test/groovy/org/FooTest.groovy")).isSameAs(test);
+    assertThat(groovyFileSystem.inputFileFromAbsolutePath(main.absolutePath())).isSameAs(main);
+    assertThat(groovyFileSystem.inputFileFromAbsolutePath(main.absolutePath().replace("/org/", "/org/../org/"))).isSameAs(main);
+    assertThat(groovyFileSystem.sourceInputFileFromAbsolutePath(main.absolutePath())).isSameAs(main);
+    assertThat(groovyFileSystem.sourceInputFileFromAbsolutePath(test.absolutePath())).isNull();
+    assertThat(groovyFileSystem.sourceInputFileFromRelativePath("main/groovy/org/Foo.groovy")).isSameAs(main);
+    // ambiguous
+    assertThat(groovyFileSystem.sourceInputFileFromRelativePath("org/Foo.groovy")).isNull();
+
+    // files added once indexed are not seen
+    fileSystem.add(new DefaultInputFile("", "Bar.groovy").setType(Type.MAIN).setLanguage(Groovy.KEY));
+    assertThat(groovyFileSystem.sourceInputFiles()).hasSize(2);
+  }
+
+  @Test
+  public void excludeLargeAndGeneratedFiles() throws IOException {
+    File baseDir = temp.newFolder();
+    fileSystem = new DefaultFileSystem(baseDir).setEncoding(StandardCharsets.UTF_8);
+    Settings settings = new Settings();
+    settings.setProperty(GroovyPlugin.ANALYSIS_MAX_FILE_SIZE, 1);
+    settings.setProperty(GroovyPlugin.ANALYSIS_MAX_FILE_LINES, 3);
+    settings.setProperty(GroovyPlugin.ANALYSIS_GENERATED_FILE_MARKERS, "@Generated, DO NOT EDIT");
+    groovyFileSystem = new GroovyFileSystem(fileSystem, settings);
+
+    InputFile small = addFile(baseDir, "Small.groovy", "class Small {\n}\n");
+    addFile(baseDir, "Large.groovy", "class Large {\n" + StringUtils.repeat(" ", 1024) + "}\n");
+    addFile(baseDir, "Long.groovy", "class Long {\n\n\n\n}\n");
+    addFile(baseDir, "Generated.groovy", "// DO NOT EDIT\nclass Generated {\n}\n");
+    // malformed in UTF-8
+    addFile(baseDir, "Latin1.groovy", "// Cr\u00e9\u00e9 - DO NOT EDIT\nclass Latin1 {}\n", StandardCharsets.ISO_8859_1);
+
+    assertThat(groovyFileSystem.sourceInputFiles()).containsOnly(small);
+    assertThat(groovyFileSystem.groovyInputFiles()).containsOnly(small);
+    assertThat(groovyFileSystem.excludedInputFiles()).extracting(InputFile::relativePath)
+      .containsOnly("Large.groovy", "Long.groovy", "Generated.groovy", "Latin1.groovy");
+  }
+
+  private InputFile addFile(File baseDir, String relativePath, String content) throws IOException {
+    return addFile(baseDir, relativePath, content, StandardCharsets.UTF_8);
+  }
+
+  private InputFile addFile(File baseDir, String relativePath, String content, Charset charset) throws IOException {
+    DefaultInputFile inputFile = new DefaultInputFile("", relativePath)
+      .setModuleBaseDir(baseDir.toPath())
+      .setType(Type.MAIN)
+      .setLanguage(Groovy.KEY)
+      .setLines(content.split("\n", -1).length);
+    FileUtils.write(inputFile.file(), content, charset);
+    fileSystem.add(inputFile);
+    return inputFile;
   }
 }
@@ -27,7 +27,11 @@ import org.sonar.api.batch.fs.InputFile.Type;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.plugins.groovy.GroovyPlugin;
 import org.sonar.plugins.groovy.TestUtils;
+import org.sonar.plugins.groovy.foundation.GroovyHighlighterAndTokenizer.CpdNormalization;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -92,6 +96,41 @@ public class GroovyHighlighterAndTokenizerTest {
     Mockito.verify(context, Mockito.times(1)).newCpdTokens();
   }
 
+  @Test
+  public void should_normalize_cpd_tokens() throws Exception {
+    File file = TestUtils.getResource("/org/sonar/plugins/groovy/foundation/Greet.groovy");
+
+    SensorContextTester context = SensorContextTester.create(file.getParentFile());
+    DefaultInputFile inputFile = new DefaultInputFile("", "Greet.groovy")
+      .setLanguage(Groovy.KEY)
+      .setType(Type.MAIN)
+      .initMetadata(new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+    context.fileSystem().add(inputFile);
+
+    Settings settings = new Settings();
+    settings.setProperty(GroovyPlugin.CPD_NORMALIZATIONS, "numbers, Comments,identifiers");
+    GroovyHighlighterAndTokenizer highlighter = new GroovyHighlighterAndTokenizer(inputFile, CpdNormalization.fromSettings(settings));
+    highlighter.processFile(context);
+
+    assertThat(context.cpdTokens(":Greet.groovy")).extracting("value").containsExactly("classIDENTIFIER{",
+      "defIDENTIFIER",
+      "IDENTIFIER(IDENTIFIER){IDENTIFIER=IDENTIFIER}",
+      "defIDENTIFIER(){IDENTIFIERLITERALIDENTIFIERLITERALIDENTIFIERLITERAL}",
+      "}",
+      "@IDENTIFIER.IDENTIFIER.IDENTIFIER",
+      "classIDENTIFIER{",
+      "doubleIDENTIFIER=NUMBER",
+      "}");
+    assertThat(context.highlightingTypeAt(":Greet.groovy", 12, 17)).containsOnly(TypeOfText.COMMENT);
+  }
+
+  @Test(expected = MessageException.class)
+  public void should_fail_on_unknown_cpd_normalization() {
+    Settings settings = new Settings();
+    settings.setProperty(GroovyPlugin.CPD_NORMALIZATIONS, "numbers,strings");
+    CpdNormalization.fromSettings(settings);
+  }
+
   @Test
   public void should_highlight_nothing_if_file_is_missing() throws Exception {
     File file = TestUtils.getResource("/org/sonar/plugins/groovy/foundation/Greet.groovy");
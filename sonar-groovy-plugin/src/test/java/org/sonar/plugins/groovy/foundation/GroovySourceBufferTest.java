@@ -0,0 +1,73 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroovySourceBufferTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_read_files_of_any_size_with_the_same_buffer() throws IOException {
+    GroovySourceBuffer buffer = new GroovySourceBuffer();
+
+    String large = StringUtils.repeat("def été = 'x'\n", 10_000);
+    CharBuffer largeContent = buffer.read(write("Large.groovy", large), StandardCharsets.UTF_8);
+    assertThat(largeContent.toString()).isEqualTo(large);
+    assertThat(buffer.read(write("Small.groovy", "class A {}"), StandardCharsets.UTF_8).toString()).isEqualTo("class A {}");
+    assertThat(buffer.read(write("Empty.groovy", ""), StandardCharsets.UTF_8).toString()).isEmpty();
+    assertThat((Object) buffer.read(write("Large2.groovy", large), StandardCharsets.UTF_8)).isSameAs(largeContent);
+  }
+
+  @Test
+  public void should_not_retain_buffers_of_files_larger_than_the_limit() throws IOException {
+    GroovySourceBuffer buffer = new GroovySourceBuffer();
+    String huge = StringUtils.repeat("x", GroovySourceBuffer.MAX_RETAINED_CAPACITY + 1);
+
+    CharBuffer content = buffer.read(write("Huge.groovy", huge), StandardCharsets.UTF_8);
+    assertThat(content.toString()).isEqualTo(huge);
+    assertThat((Object) buffer.read(write("Huge2.groovy", huge), StandardCharsets.UTF_8)).isNotSameAs(content);
+    assertThat(buffer.read(write("Small.groovy", "class A {}"), StandardCharsets.UTF_8).capacity()).isLessThanOrEqualTo(GroovySourceBuffer.MAX_RETAINED_CAPACITY);
+  }
+
+  @Test
+  public void should_split_lines() throws IOException {
+    CharBuffer content = new GroovySourceBuffer().read(write("Lines.groovy", "a\r\nb\rc\n\nd"), StandardCharsets.UTF_8);
+    assertThat(GroovySourceBuffer.lines(content)).containsExactly("a", "b", "c", "", "d");
+  }
+
+  private File write(String name, String content) throws IOException {
+    File file = temp.newFile(name);
+    FileUtils.write(file, content, StandardCharsets.UTF_8);
+    return file;
+  }
+}
@@ -20,9 +20,17 @@
 package org.sonar.plugins.groovy.surefire;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatcher;
 import org.mockito.ArgumentMatchers;
 import org.mockito.invocation.InvocationOnMock;
@@ -61,6 +69,9 @@ import static org.mockito.Mockito.when;
  */
 public class GroovySurefireParserTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private ResourcePerspectives perspectives;
   private FileSystem fs;
   private GroovySurefireParser parser;
@@ -70,6 +81,7 @@ public class GroovySurefireParserTest {
   @Before
   public void before() {
     context = mock(SensorContext.class);
+    when(context.settings()).thenReturn(new Settings());
     perspectives = mock(ResourcePerspectives.class);
     fs = new DefaultFileSystem(new File("."));
 
@@ -108,6 +120,29 @@ public class GroovySurefireParserTest {
     verify(testPlan).addTestCase("testGetJDependsCollector");
   }
 
+  @Test
+  public void should_truncate_stack_traces() throws URISyntaxException {
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    context.settings().setProperty(GroovyPlugin.SUREFIRE_STACK_TRACE_MAX_LENGTH, 16);
+
+    MutableTestCase testCase = mock(MutableTestCase.class);
+    when(testCase.setDurationInMs(anyLong())).thenReturn(testCase);
+    when(testCase.setStatus(any(TestCase.Status.class))).thenReturn(testCase);
+    when(testCase.setMessage(anyString())).thenReturn(testCase);
+    when(testCase.setStackTrace(anyString())).thenReturn(testCase);
+    when(testCase.setType(anyString())).thenReturn(testCase);
+    MutableTestPlan testPlan = mock(MutableTestPlan.class);
+    when(testPlan.addTestCase(anyString())).thenReturn(testCase);
+    when(perspectives.as(eq(MutableTestPlan.class), argThat(inputFileMatcher(":org.sonar.Foo")))).thenReturn(testPlan);
+
+    parser.collect(context, new File("src/test/resources/org/sonar/plugins/groovy/surefire/SurefireSensorTest/successRatioIsZeroWhenAllTestsFail"));
+
+    verify(testCase).setStackTrace("java.lang.Assert");
+    verify(testCase).setStackTrace("java.lang.Runtim");
+    assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TEST_FAILURES).value()).isEqualTo(1);
+    assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TEST_ERRORS).value()).isEqualTo(1);
+  }
+
   private static ArgumentMatcher<InputFile> inputFileMatcher(final String fileName) {
     return new ArgumentMatcher<InputFile>() {
       @Override
@@ -119,7 +154,7 @@ public class GroovySurefireParserTest {
 
   @Test
   public void should_store_zero_tests_when_directory_is_null_or_non_existing_or_a_file() throws Exception {
-    parser.collect(context, null);
+    parser.collect(context, (File) null);
     verify(context, never()).newMeasure();
 
     context = mock(SensorContext.class);
@@ -147,6 +182,74 @@ public class GroovySurefireParserTest {
     assertThat(context.measures(":ch.hortis.sonar.mvn.mc.JavaNCSSCollectorTest")).hasSize(6);
   }
 
+  @Test
+  public void should_aggregate_reports_of_nested_directories_once() throws Exception {
+    SensorContextTester expected = SensorContextTester.create(new File(""));
+    parser.collect(expected, getDir("multipleReports"));
+
+    File module1 = temp.newFolder("module1");
+    File module2 = temp.newFolder("module2");
+    copyReport("TEST-ch.hortis.sonar.mvn.SonarMojoTest.xml", new File(module1, "build/test-results/test"));
+    copyReport("TEST-ch.hortis.sonar.mvn.SonarMojoTest.xml", new File(module2, "build/test-results/copy"));
+    copyReport("TEST-ch.hortis.sonar.mvn.mc.CheckstyleCollectorTest.xml", new File(module2, "build/test-results/test"));
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    parser.collect(context, Arrays.asList(module1, module2));
+
+    assertThat(context.measure(":ch.hortis.sonar.mvn.SonarMojoTest", CoreMetrics.TESTS).value())
+      .isEqualTo(expected.measure(":ch.hortis.sonar.mvn.SonarMojoTest", CoreMetrics.TESTS).value());
+    assertThat(context.measures(":ch.hortis.sonar.mvn.mc.CheckstyleCollectorTest")).hasSize(6);
+    assertThat(context.measures(":ch.hortis.sonar.mvn.mc.CloverCollectorTest")).isEmpty();
+  }
+
+  @Test
+  public void should_use_test_suite_report_of_a_directory_without_other_report() throws Exception {
+    File reports = temp.newFolder("reports");
+    copyReport("TEST-ch.hortis.sonar.mvn.SonarMojoTest.xml", new File(reports, "unit"));
+    FileUtils.copyFileToDirectory(new File(getDir("onlyTestSuiteReport"), "TESTS-AllTests.xml"), new File(reports, "suite"));
+    FileUtils.copyFileToDirectory(new File(getDir("onlyTestSuiteReport"), "TESTS-AllTests.xml"), new File(reports, ".hidden"));
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    parser.collect(context, reports);
+
+    assertThat(context.measures(":ch.hortis.sonar.mvn.SonarMojoTest")).hasSize(6);
+    assertThat(context.measures(":org.sonar.SecondTest")).hasSize(6);
+    assertThat(context.measure(":org.sonar.SecondTest", CoreMetrics.TESTS).value()).isEqualTo(
+      measureOfOnlyTestSuiteReport(":org.sonar.SecondTest"));
+  }
+
+  @Test
+  public void should_read_gzipped_report_only_without_its_uncompressed_form() throws Exception {
+    SensorContextTester expected = SensorContextTester.create(new File(""));
+    parser.collect(expected, getDir("multipleReports"));
+
+    File reports = temp.newFolder("reports");
+    copyReport("TEST-ch.hortis.sonar.mvn.SonarMojoTest.xml", reports);
+    gzipReport("TEST-ch.hortis.sonar.mvn.SonarMojoTest.xml", reports);
+    gzipReport("TEST-ch.hortis.sonar.mvn.mc.CheckstyleCollectorTest.xml", reports);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    parser.collect(context, reports);
+
+    assertThat(context.measure(":ch.hortis.sonar.mvn.SonarMojoTest", CoreMetrics.TESTS).value())
+      .isEqualTo(expected.measure(":ch.hortis.sonar.mvn.SonarMojoTest", CoreMetrics.TESTS).value());
+    assertThat(context.measure(":ch.hortis.sonar.mvn.mc.CheckstyleCollectorTest", CoreMetrics.TESTS).value())
+      .isEqualTo(expected.measure(":ch.hortis.sonar.mvn.mc.CheckstyleCollectorTest", CoreMetrics.TESTS).value());
+  }
+
+  private void gzipReport(String report, File dir) throws URISyntaxException, IOException {
+    try (OutputStream output = new GZIPOutputStream(new FileOutputStream(new File(dir, report + ".gz")))) {
+      FileUtils.copyFile(new File(getDir("multipleReports"), report), output);
+    }
+  }
+
+  private Integer measureOfOnlyTestSuiteReport(String key) throws URISyntaxException {
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    parser.collect(context, getDir("onlyTestSuiteReport"));
+    return context.measure(key, CoreMetrics.TESTS).value();
+  }
+
+  private void copyReport(String report, File dir) throws URISyntaxException, IOException {
+    FileUtils.copyFileToDirectory(new File(getDir("multipleReports"), report), dir);
+  }
+
   // SONAR-2841: if there's only a test suite report, then it should be read.
   @Test
   public void shouldUseTestSuiteReportIfAlone() throws URISyntaxException {
@@ -171,6 +274,7 @@ public class GroovySurefireParserTest {
   @Test
   public void shouldNotInsertZeroOnFiles() throws URISyntaxException {
     SensorContext context = mock(SensorContext.class);
+    when(context.settings()).thenReturn(new Settings());
     parser.collect(context, getDir("noTests"));
 
     verify(context, never()).newMeasure();
@@ -228,4 +332,20 @@ public class GroovySurefireParserTest {
     assertThat(context.measure(":src/test/org/sonar/JavaNCSSCollectorTest.groovy", CoreMetrics.TESTS).value()).isEqualTo(11);
   }
 
+  @Test
+  public void should_resolve_test_files_whatever_their_suffix_and_source_directory() throws URISyntaxException {
+    DefaultFileSystem fs = new DefaultFileSystem(new File("."));
+    fs.add(new DefaultInputFile("", "src/test/groovy/org/sonar/JavaNCSSCollectorTest.groovy").setLanguage(Groovy.KEY).setType(Type.TEST));
+    fs.add(new DefaultInputFile("", "src/it/org/sonar/SecondTest.grvy").setLanguage(Groovy.KEY).setType(Type.TEST));
+    fs.add(new DefaultInputFile("", "src/main/org/sonar/SecondTest.groovy").setLanguage(Groovy.KEY).setType(Type.MAIN));
+
+    parser = new GroovySurefireParser(groovy, perspectives, fs);
+
+    assertThat(parser.getUnitTestInputFile("org.sonar.JavaNCSSCollectorTest").relativePath()).isEqualTo("src/test/groovy/org/sonar/JavaNCSSCollectorTest.groovy");
+    assertThat(parser.getUnitTestInputFile("org.sonar.SecondTest").relativePath()).isEqualTo("src/it/org/sonar/SecondTest.grvy");
+    assertThat(parser.getUnitTestInputFile("SecondTest").relativePath()).isEqualTo("src/it/org/sonar/SecondTest.grvy");
+    assertThat(parser.getUnitTestInputFile("sonar.org.SecondTest")).isNull();
+    assertThat(parser.getUnitTestInputFile("org.sonar.Unknown")).isNull();
+  }
+
 }
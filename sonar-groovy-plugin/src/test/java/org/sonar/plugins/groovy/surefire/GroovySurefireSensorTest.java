@@ -36,9 +36,11 @@ import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.plugins.groovy.GroovyPlugin;
 import org.sonar.plugins.groovy.foundation.Groovy;
 import org.sonar.plugins.groovy.surefire.api.SurefireUtils;
+import org.sonar.plugins.groovy.utils.PerformanceReport;
 
 import java.io.File;
 import java.net.URISyntaxException;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyString;
@@ -82,12 +84,12 @@ public class GroovySurefireSensorTest {
       }
     }).when(parser).getUnitTestInputFile(anyString());
 
-    surefireSensor = new GroovySurefireSensor(parser, mock(Settings.class), fs, pathResolver);
+    surefireSensor = new GroovySurefireSensor(parser, mock(Settings.class), fs, pathResolver, new PerformanceReport(new Settings()));
   }
 
   @Test
   public void test_description() {
-    surefireSensor = new GroovySurefireSensor(new GroovySurefireParser(groovy, perspectives, fs), mock(Settings.class), fs, pathResolver);
+    surefireSensor = new GroovySurefireSensor(new GroovySurefireParser(groovy, perspectives, fs), mock(Settings.class), fs, pathResolver, new PerformanceReport(new Settings()));
     DefaultSensorDescriptor defaultSensorDescriptor = new DefaultSensorDescriptor();
     surefireSensor.describe(defaultSensorDescriptor);
     assertThat(defaultSensorDescriptor.languages()).containsOnly(Groovy.KEY);
@@ -98,7 +100,7 @@ public class GroovySurefireSensorTest {
     Settings settings = mock(Settings.class);
     when(settings.getString(SurefireUtils.SUREFIRE_REPORTS_PATH_PROPERTY)).thenReturn("unknown");
 
-    GroovySurefireSensor surefireSensor = new GroovySurefireSensor(mock(GroovySurefireParser.class), settings, fs, pathResolver);
+    GroovySurefireSensor surefireSensor = new GroovySurefireSensor(mock(GroovySurefireParser.class), settings, fs, pathResolver, new PerformanceReport(new Settings()));
     surefireSensor.execute(mock(SensorContext.class));
   }
 
@@ -109,8 +111,8 @@ public class GroovySurefireSensorTest {
       .add(inputFile("org.sonar.core.ExtensionsFinderTest"))
       .add(inputFile("org.sonar.core.ExtensionsFinderTest2"))
       .add(inputFile("org.sonar.core.ExtensionsFinderTest3"));
-    surefireSensor.collect(context, new File(getClass().getResource(
-      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/shouldHandleTestSuiteDetails/").toURI()));
+    surefireSensor.collect(context, Collections.singletonList(new File(getClass().getResource(
+      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/shouldHandleTestSuiteDetails/").toURI())));
 
     // 3 classes, 6 measures by class
     assertThat(context.measures(":org.sonar.core.ExtensionsFinderTest")).hasSize(6);
@@ -149,8 +151,8 @@ public class GroovySurefireSensorTest {
       .add(inputFile("org.sonar.core.ExtensionsFinderTest2"))
       .add(inputFile("org.sonar.core.ExtensionsFinderTest3"));
 
-    surefireSensor.collect(context, new File(getClass().getResource(
-      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/shouldSaveErrorsAndFailuresInXML/").toURI()));
+    surefireSensor.collect(context, Collections.singletonList(new File(getClass().getResource(
+      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/shouldSaveErrorsAndFailuresInXML/").toURI())));
 
     // 1 classes, 6 measures by class
     assertThat(context.measure(":org.sonar.core.ExtensionsFinderTest", CoreMetrics.SKIPPED_TESTS).value()).isEqualTo(1);
@@ -163,8 +165,8 @@ public class GroovySurefireSensorTest {
     SensorContextTester context = SensorContextTester.create(new File(""));
     context.fileSystem().add(inputFile("NoPackagesTest"));
 
-    surefireSensor.collect(context, new File(getClass().getResource(
-      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/shouldManageClassesWithDefaultPackage/").toURI()));
+    surefireSensor.collect(context, Collections.singletonList(new File(getClass().getResource(
+      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/shouldManageClassesWithDefaultPackage/").toURI())));
 
     assertThat(context.measure(":NoPackagesTest", CoreMetrics.TESTS).value()).isEqualTo(2);
   }
@@ -174,8 +176,8 @@ public class GroovySurefireSensorTest {
     SensorContextTester context = SensorContextTester.create(new File(""));
     context.fileSystem().add(inputFile("org.sonar.Foo"));
 
-    surefireSensor.collect(context, new File(getClass().getResource(
-      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/successRatioIsZeroWhenAllTestsFail/").toURI()));
+    surefireSensor.collect(context, Collections.singletonList(new File(getClass().getResource(
+      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/successRatioIsZeroWhenAllTestsFail/").toURI())));
 
     assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TESTS).value()).isEqualTo(2);
     assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TEST_FAILURES).value()).isEqualTo(1);
@@ -188,8 +190,8 @@ public class GroovySurefireSensorTest {
     SensorContextTester context = SensorContextTester.create(new File(""));
     context.fileSystem().add(inputFile("org.sonar.Foo"));
 
-    surefireSensor.collect(context, new File(getClass().getResource(
-      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/measuresShouldNotIncludeSkippedTests/").toURI()));
+    surefireSensor.collect(context, Collections.singletonList(new File(getClass().getResource(
+      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/measuresShouldNotIncludeSkippedTests/").toURI())));
 
     assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TESTS).value()).isEqualTo(2);
     assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TEST_FAILURES).value()).isEqualTo(1);
@@ -203,8 +205,8 @@ public class GroovySurefireSensorTest {
     SensorContextTester context = SensorContextTester.create(new File(""));
     context.fileSystem().add(inputFile("org.sonar.Foo"));
 
-    surefireSensor.collect(context, new File(getClass().getResource(
-      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/noSuccessRatioIfNoTests/").toURI()));
+    surefireSensor.collect(context, Collections.singletonList(new File(getClass().getResource(
+      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/noSuccessRatioIfNoTests/").toURI())));
 
     assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TESTS).value()).isEqualTo(0);
     assertThat(context.measure(":org.sonar.Foo", CoreMetrics.TEST_FAILURES).value()).isEqualTo(0);
@@ -218,8 +220,8 @@ public class GroovySurefireSensorTest {
     SensorContextTester context = SensorContextTester.create(new File(""));
     context.fileSystem().add(inputFile("org.sonar.Foo"));
 
-    surefireSensor.collect(context, new File(getClass().getResource(
-      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/ignoreSuiteAsInnerClass/").toURI()));
+    surefireSensor.collect(context, Collections.singletonList(new File(getClass().getResource(
+      "/org/sonar/plugins/groovy/surefire/SurefireSensorTest/ignoreSuiteAsInnerClass/").toURI())));
 
     // ignore TestHandler$Input.xml
     assertThat(context.measure(":org.apache.shindig.protocol.TestHandler", CoreMetrics.TESTS).value()).isEqualTo(0);
@@ -20,13 +20,16 @@
 package org.sonar.plugins.groovy.surefire.api;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 
 import java.io.File;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -36,6 +39,9 @@ import static org.mockito.Mockito.when;
 
 public class SurefireUtilsTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private FileSystem fs;
   private PathResolver pathResolver;
 
@@ -49,16 +55,10 @@ public class SurefireUtilsTest {
   public void should_get_reports_from_property() {
     Settings settings = mock(Settings.class);
     when(settings.getString("sonar.junit.reportsPath")).thenReturn("target/surefire");
-    assertThat(SurefireUtils.getReportsDirectory(settings, fs, pathResolver).exists()).isTrue();
-    assertThat(SurefireUtils.getReportsDirectory(settings, fs, pathResolver).isDirectory()).isTrue();
-  }
-
-  @Test
-  public void return_default_value_if_property_unset() throws Exception {
-    File directory = SurefireUtils.getReportsDirectory(mock(Settings.class), fs, pathResolver);
-    assertThat(directory.getCanonicalPath()).endsWith("target" + File.separator + "surefire-reports");
-    assertThat(directory.exists()).isFalse();
-    assertThat(directory.isDirectory()).isFalse();
+    List<File> directories = SurefireUtils.getReportsDirectories(settings, fs, pathResolver);
+    assertThat(directories).hasSize(1);
+    assertThat(directories.get(0).exists()).isTrue();
+    assertThat(directories.get(0).isDirectory()).isTrue();
   }
 
   @Test
@@ -67,10 +67,52 @@ public class SurefireUtilsTest {
     when(settings.getString("sonar.junit.reportsPath")).thenReturn("target/surefire");
     PathResolver pathResolver = mock(PathResolver.class);
     when(pathResolver.relativeFile(any(File.class), anyString())).thenThrow(new IllegalStateException());
-    File directory = SurefireUtils.getReportsDirectory(settings, fs, pathResolver);
-    assertThat(directory.getCanonicalPath()).endsWith("target" + File.separator + "surefire-reports");
-    assertThat(directory.exists()).isFalse();
-    assertThat(directory.isDirectory()).isFalse();
+    List<File> directories = SurefireUtils.getReportsDirectories(settings, fs, pathResolver);
+    assertThat(directories).hasSize(1);
+    assertThat(directories.get(0).getCanonicalPath()).endsWith("target" + File.separator + "surefire-reports");
+    assertThat(directories.get(0).exists()).isFalse();
+  }
+
+  @Test
+  public void should_get_several_reports_directories_from_property() throws Exception {
+    Settings settings = mock(Settings.class);
+    when(settings.getString("sonar.junit.reportsPath")).thenReturn("target/surefire, unknown,**/surefire*");
+    List<File> directories = SurefireUtils.getReportsDirectories(settings, fs, pathResolver);
+    assertThat(directories).hasSize(3);
+    assertThat(directories.get(0).getCanonicalFile()).isEqualTo(directories.get(2).getCanonicalFile());
+    assertThat(directories.get(0).isDirectory()).isTrue();
+    assertThat(directories.get(1).exists()).isFalse();
+  }
+
+  @Test
+  public void return_default_directory_if_property_unset() throws Exception {
+    List<File> directories = SurefireUtils.getReportsDirectories(mock(Settings.class), fs, pathResolver);
+    assertThat(directories).hasSize(1);
+    assertThat(directories.get(0).getCanonicalPath()).endsWith("target" + File.separator + "surefire-reports");
+  }
+
+  @Test
+  public void should_expand_patterns_below_their_fixed_part_only() throws Exception {
+    File baseDir = temp.newFolder();
+    new File(baseDir, "surefire-reports").mkdirs();
+    new File(baseDir, "module/target/surefire-reports/nested/surefire-reports").mkdirs();
+    new File(baseDir, ".git/surefire-reports").mkdirs();
+    new File(baseDir, "node_modules/lib/surefire-reports").mkdirs();
+    new File(baseDir, "other/surefire-reports").mkdirs();
+    FileSystem fs = new DefaultFileSystem(baseDir);
+    Settings settings = mock(Settings.class);
+
+    when(settings.getString("sonar.junit.reportsPath")).thenReturn("**/surefire-reports");
+    assertThat(SurefireUtils.getReportsDirectories(settings, fs, pathResolver)).containsOnly(
+      new File(baseDir, "surefire-reports"),
+      new File(baseDir, "module/target/surefire-reports"),
+      new File(baseDir, "other/surefire-reports"));
+
+    when(settings.getString("sonar.junit.reportsPath")).thenReturn("module/*/surefire-reports");
+    assertThat(SurefireUtils.getReportsDirectories(settings, fs, pathResolver)).containsOnly(new File(baseDir, "module/target/surefire-reports"));
+
+    when(settings.getString("sonar.junit.reportsPath")).thenReturn(".git/surefire-*");
+    assertThat(SurefireUtils.getReportsDirectories(settings, fs, pathResolver)).containsOnly(new File(baseDir, ".git/surefire-reports"));
   }
 
 }
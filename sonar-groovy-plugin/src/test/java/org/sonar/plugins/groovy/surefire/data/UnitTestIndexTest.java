@@ -0,0 +1,83 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.surefire.data;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UnitTestIndexTest {
+
+  @Test
+  public void shouldMergeIndexes() {
+    UnitTestIndex index = new UnitTestIndex();
+    index.index("org.sonar.Foo").add(new UnitTestResult().setName("a").setStatus(UnitTestResult.STATUS_OK).setDurationMilliseconds(10L));
+
+    UnitTestIndex other = new UnitTestIndex();
+    other.index("org.sonar.Foo").add(new UnitTestResult().setName("b").setStatus(UnitTestResult.STATUS_FAILURE).setDurationMilliseconds(5L));
+    other.index("org.sonar.Bar").add(new UnitTestResult().setName("c").setStatus(UnitTestResult.STATUS_SKIPPED));
+
+    index.merge(other);
+
+    assertThat(index.size()).isEqualTo(2);
+    UnitTestClassReport foo = index.get("org.sonar.Foo");
+    assertThat(foo.getTests()).isEqualTo(2);
+    assertThat(foo.getFailures()).isEqualTo(1);
+    assertThat(foo.getDurationMilliseconds()).isEqualTo(15L);
+    assertThat(foo.getResults()).extracting(UnitTestResult::getName).containsExactly("a", "b");
+    assertThat(index.get("org.sonar.Bar").getSkipped()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldMergeClassReports() {
+    UnitTestIndex index = new UnitTestIndex();
+    index.index("org.sonar.Foo").add(new UnitTestResult().setName("a").setStatus(UnitTestResult.STATUS_ERROR).setDurationMilliseconds(10L));
+    index.index("org.sonar.Foo$Inner")
+      .add(new UnitTestResult().setName("b").setStatus(UnitTestResult.STATUS_OK).setDurationMilliseconds(-1L))
+      .add(new UnitTestResult().setName("c").setStatus(UnitTestResult.STATUS_SKIPPED).setDurationMilliseconds(3L));
+
+    UnitTestClassReport foo = index.merge("org.sonar.Foo$Inner", "org.sonar.Foo");
+
+    assertThat(index.getClassnames()).containsOnly("org.sonar.Foo");
+    assertThat(foo.getTests()).isEqualTo(3);
+    assertThat(foo.getErrors()).isEqualTo(1);
+    assertThat(foo.getSkipped()).isEqualTo(1);
+    assertThat(foo.getDurationMilliseconds()).isEqualTo(13L);
+    assertThat(foo.getNegativeTimeTestNumber()).isEqualTo(1L);
+    assertThat(foo.getResults()).extracting(UnitTestResult::getName).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  public void shouldMergeWhileIteratingOverClassnames() {
+    UnitTestIndex index = new UnitTestIndex();
+    index.index("org.sonar.Foo").add(new UnitTestResult().setName("a").setStatus(UnitTestResult.STATUS_OK));
+    index.index("org.sonar.Foo$Inner").add(new UnitTestResult().setName("b").setStatus(UnitTestResult.STATUS_OK));
+
+    for (String classname : index.getClassnames()) {
+      if (classname.contains("$")) {
+        index.merge(classname, classname.substring(0, classname.indexOf('$')));
+      }
+    }
+
+    assertThat(index.getClassnames()).containsOnly("org.sonar.Foo");
+    assertThat(index.get("org.sonar.Foo").getTests()).isEqualTo(2);
+  }
+
+}
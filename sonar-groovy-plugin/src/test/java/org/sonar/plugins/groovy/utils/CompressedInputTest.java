@@ -0,0 +1,82 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompressedInputTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void should_read_plain_files() throws IOException {
+    File file = temp.newFile("report.xml");
+    Files.write(file.toPath(), "<report/>".getBytes(StandardCharsets.UTF_8));
+    assertThat(read(file)).isEqualTo("<report/>");
+
+    Files.write(file.toPath(), new byte[] {0x1f});
+    assertThat(read(file)).isEqualTo("\u001f");
+
+    Files.write(file.toPath(), new byte[0]);
+    assertThat(read(file)).isEmpty();
+  }
+
+  @Test
+  public void should_decompress_gzip_files_whatever_their_name() throws IOException {
+    File file = temp.newFile("report.xml");
+    try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+      output.write("<report/>".getBytes(StandardCharsets.UTF_8));
+    }
+    assertThat(read(file)).isEqualTo("<report/>");
+  }
+
+  @Test
+  public void should_fail_on_zstd_files() throws IOException {
+    File file = temp.newFile("report.xml.zst");
+    Files.write(file.toPath(), new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0x00});
+
+    thrown.expect(IOException.class);
+    thrown.expectMessage("Zstandard compressed files are not supported");
+    read(file);
+  }
+
+  private static String read(File file) throws IOException {
+    try (InputStream input = CompressedInput.open(file.toPath())) {
+      return IOUtils.toString(input, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlightRecorderTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_do_nothing_when_not_recording() throws Exception {
+    File file = temp.newFile("Foo.groovy");
+    try (FlightRecorder.Span span = FlightRecorder.fileLexing(file, "metrics")) {
+      assertThat(span).isNotNull();
+    }
+  }
+
+  @Test
+  public void should_record_events() throws Exception {
+    File report = temp.newFile("codenarc.xml");
+    Files.write(report.toPath(), "<CodeNarc/>".getBytes(StandardCharsets.UTF_8));
+    Path recordingFile = temp.getRoot().toPath().resolve("recording.jfr");
+
+    try (Recording recording = new Recording()) {
+      recording.enable("org.sonar.plugins.groovy.ReportParsing");
+      recording.start();
+      try (FlightRecorder.Span span = FlightRecorder.reportParsing(report)) {
+        // parsing
+      }
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+      .filter(event -> "org.sonar.plugins.groovy.ReportParsing".equals(event.getEventType().getName()))
+      .collect(Collectors.toList());
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).getString("path")).isEqualTo(report.getPath());
+    assertThat(events.get(0).getLong("size")).isEqualTo(11L);
+  }
+}
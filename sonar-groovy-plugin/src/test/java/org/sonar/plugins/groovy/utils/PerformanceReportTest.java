@@ -0,0 +1,112 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.plugins.groovy.GroovyPlugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PerformanceReportTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Test
+  public void should_write_phases_to_the_work_dir() throws Exception {
+    SensorContextTester context = SensorContextTester.create(temp.newFolder());
+    File workDir = temp.newFolder();
+    context.fileSystem().setWorkDir(workDir);
+    File source = temp.newFile("Foo.groovy");
+    Files.write(source.toPath(), "class Foo {}".getBytes(StandardCharsets.UTF_8));
+    Settings settings = new Settings();
+    settings.setProperty(GroovyPlugin.PERFORMANCE_REPORT, true);
+
+    PerformanceReport report = new PerformanceReport(settings);
+    try (PerformanceReport.Phase phase = report.start(context, "GroovySensor", "highlighting")) {
+      phase.addFile(source);
+    }
+    try (PerformanceReport.Phase phase = report.start(context, "CodeNarc", "analysis")) {
+      phase.addFile(source);
+      phase.addFile(source);
+    }
+
+    String json = new String(Files.readAllBytes(new File(workDir, PerformanceReport.REPORT_FILE).toPath()), StandardCharsets.UTF_8);
+    assertThat(json)
+      .contains("\"sensor\":\"GroovySensor\",\"phase\":\"highlighting\"")
+      .contains("\"files\":1,\"bytesRead\":12")
+      .contains("\"sensor\":\"CodeNarc\",\"phase\":\"analysis\"")
+      .contains("\"files\":2,\"bytesRead\":24")
+      .contains("\"heapUsedBytes\":");
+  }
+
+  @Test
+  public void should_log_a_summary_once_the_module_is_analyzed() throws Exception {
+    SensorContextTester context = SensorContextTester.create(temp.newFolder());
+    context.fileSystem().setWorkDir(temp.newFolder());
+    File source = temp.newFile("Foo.groovy");
+    Files.write(source.toPath(), "class Foo {}".getBytes(StandardCharsets.UTF_8));
+    Settings settings = new Settings();
+    settings.setProperty(GroovyPlugin.PERFORMANCE_REPORT, true);
+
+    PerformanceReport report = new PerformanceReport(settings);
+    report.start();
+    try (PerformanceReport.Phase phase = report.start(context, "GroovySensor", "highlighting")) {
+      phase.addFile(source);
+    }
+    try (PerformanceReport.Phase phase = report.start(context, "CodeNarc", "analysis")) {
+      phase.addFile(source);
+    }
+    assertThat(String.join("\n", logTester.logs(LoggerLevel.INFO))).doesNotContain("Performance of the Groovy sensors");
+    report.stop();
+
+    List<String> logs = logTester.logs(LoggerLevel.INFO);
+    assertThat(logs.get(logs.size() - 1)).startsWith("Performance of the Groovy sensors: 2 phase(s), ").contains(" 2 file(s), 24 bytes read");
+  }
+
+  @Test
+  public void should_measure_nothing_by_default() throws Exception {
+    SensorContextTester context = SensorContextTester.create(temp.newFolder());
+    File workDir = temp.newFolder();
+    context.fileSystem().setWorkDir(workDir);
+
+    PerformanceReport report = new PerformanceReport(new Settings());
+    try (PerformanceReport.Phase phase = report.start(context, "GroovySensor", "highlighting")) {
+      phase.addFile(temp.newFile("Foo.groovy"));
+    }
+    report.stop();
+
+    assertThat(new File(workDir, PerformanceReport.REPORT_FILE)).doesNotExist();
+    assertThat(logTester.logs()).isEmpty();
+  }
+}
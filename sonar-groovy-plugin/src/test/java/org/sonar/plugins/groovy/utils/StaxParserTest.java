@@ -22,13 +22,26 @@ package org.sonar.plugins.groovy.utils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import javax.xml.stream.XMLStreamException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class StaxParserTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
@@ -39,4 +52,27 @@ public class StaxParserTest {
     parser.parse(new File("fake.xml"));
   }
 
+  @Test
+  public void should_parse_gzipped_files() throws Exception {
+    File file = temp.newFile("report.xml.gz");
+    try (OutputStream output = new GZIPOutputStream(new FileOutputStream(file))) {
+      output.write("<report/>".getBytes(StandardCharsets.UTF_8));
+    }
+    List<String> elements = new ArrayList<>();
+    new StaxParser(rootCursor -> elements.add(rootCursor.advance().getLocalName())).parse(file);
+    assertThat(elements).containsExactly("report");
+  }
+
+  @Test
+  public void should_parse_streams_with_any_buffer_size() throws Exception {
+    List<String> elements = new ArrayList<>();
+    StaxParser parser = new StaxParser(rootCursor -> {
+      rootCursor.advance();
+      elements.add(rootCursor.getLocalName());
+      elements.add(rootCursor.childElementCursor().advance().getLocalName());
+    }, 1);
+    parser.parse(new ByteArrayInputStream("<report><file name=\"a\"/></report>".getBytes(StandardCharsets.UTF_8)));
+    assertThat(elements).containsExactly("report", "file");
+  }
+
 }
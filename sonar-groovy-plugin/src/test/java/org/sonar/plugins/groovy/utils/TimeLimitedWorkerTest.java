@@ -0,0 +1,92 @@
+/*
+ * Sonar Groovy Plugin
+ * Copyright (C) 2010-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.groovy.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class TimeLimitedWorkerTest {
+
+  @Test
+  public void should_abandon_task_exceeding_time_limit() throws Exception {
+    CountDownLatch neverReleased = new CountDownLatch(1);
+    try (TimeLimitedWorker worker = new TimeLimitedWorker("test worker")) {
+      assertThat(worker.call(() -> Thread.currentThread().getName(), 10_000L)).isEqualTo("test worker");
+      try {
+        worker.call(() -> {
+          neverReleased.await();
+          return "never";
+        }, 50L);
+        fail();
+      } catch (TimeoutException e) {
+        // expected
+      }
+      assertThat(worker.call(() -> Thread.currentThread().isDaemon(), 10_000L)).isTrue();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_propagate_task_failure() throws Exception {
+    try (TimeLimitedWorker worker = new TimeLimitedWorker("test worker")) {
+      worker.call(() -> {
+        throw new IllegalArgumentException();
+      }, 10_000L);
+    }
+  }
+
+  @Test
+  public void should_reject_tasks_while_too_many_threads_are_abandoned() throws Exception {
+    AtomicBoolean released = new AtomicBoolean();
+    Callable<String> ignoringInterruption = () -> {
+      while (!released.get()) {
+        Thread.yield();
+      }
+      return "released";
+    };
+    int maxAbandonedThreads = TimeLimitedWorker.abandonedThreads() + 1;
+    try (TimeLimitedWorker worker = new TimeLimitedWorker("test worker", maxAbandonedThreads)) {
+      try {
+        worker.call(ignoringInterruption, 50L);
+        fail();
+      } catch (TimeoutException e) {
+        // expected
+      }
+      assertThat(TimeLimitedWorker.abandonedThreads()).isEqualTo(maxAbandonedThreads);
+      AtomicBoolean run = new AtomicBoolean();
+      try {
+        worker.call(() -> run.getAndSet(true), 10_000L);
+        fail();
+      } catch (RejectedExecutionException e) {
+        // expected
+      }
+      assertThat(run.get()).isFalse();
+    } finally {
+      released.set(true);
+    }
+  }
+
+}